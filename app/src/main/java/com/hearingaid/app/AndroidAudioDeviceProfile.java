@@ -0,0 +1,61 @@
+package com.hearingaid.app;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioRecord;
+import android.media.AudioTrack;
+
+/**
+ * خواندن مشخصات صوتی دستگاه از AudioManager
+ */
+public class AndroidAudioDeviceProfile implements AudioDeviceProfile {
+    private static final int DEFAULT_SAMPLE_RATE = 44100;
+    
+    private final AudioManager audioManager;
+    
+    public AndroidAudioDeviceProfile(Context context) {
+        this.audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+    }
+    
+    @Override
+    public int getNativeSampleRate() {
+        int sampleRate = readIntProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+        return sampleRate > 0 ? sampleRate : DEFAULT_SAMPLE_RATE;
+    }
+    
+    @Override
+    public int getFramesPerBurst() {
+        return readIntProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER);
+    }
+    
+    @Override
+    public int getMinRecordBufferBytes(int sampleRate) {
+        return AudioRecord.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+    }
+    
+    @Override
+    public int getMinTrackBufferBytes(int sampleRate) {
+        return AudioTrack.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+    }
+    
+    @Override
+    public AudioIo open(LatencyTuner tuner) {
+        return AndroidAudioIo.open(tuner);
+    }
+    
+    private int readIntProperty(String name) {
+        if (audioManager == null) {
+            return 0;
+        }
+        String value = audioManager.getProperty(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.hearingaid.app;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.AudioTrack;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * ورودی میکروفون (AudioRecord مونو) و خروجی استریو (AudioTrack) اندروید
+ */
+public class AndroidAudioIo implements AudioIo {
+    private static final String TAG = "AndroidAudioIo";
+    
+    private static final int CHANNEL_CONFIG_IN = AudioFormat.CHANNEL_IN_MONO; // بیشتر دستگاه‌ها مونو پشتیبانی می‌کنند
+    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
+    
+    private final AudioRecord audioRecord;
+    private final AudioTrack audioTrack;
+    
+    private AndroidAudioIo(AudioRecord audioRecord, AudioTrack audioTrack) {
+        this.audioRecord = audioRecord;
+        this.audioTrack = audioTrack;
+    }
+    
+    /**
+     * ساخت ضبط و پخش با اندازه‌های تعیین شده توسط LatencyTuner
+     * @return مسیر آماده، یا null اگر راه‌اندازی ناموفق بود
+     */
+    public static AndroidAudioIo open(LatencyTuner tuner) {
+        AudioRecord record = new AudioRecord(
+                MediaRecorder.AudioSource.MIC,
+                tuner.getSampleRate(),
+                CHANNEL_CONFIG_IN,
+                AUDIO_FORMAT,
+                tuner.getRecordBufferBytes()
+        );
+        AudioTrack track = createAudioTrack(tuner);
+        
+        if (record.getState() != AudioRecord.STATE_INITIALIZED ||
+            track.getState() != AudioTrack.STATE_INITIALIZED) {
+            Log.e(TAG, "خطا در راه‌اندازی ضبط یا پخش صدا");
+            record.release();
+            track.release();
+            return null;
+        }
+        return new AndroidAudioIo(record, track);
+    }
+    
+    /**
+     * ساخت AudioTrack؛ از API 26 با حالت کارایی کم‌تأخیر (مسیر سریع میکسر)
+     */
+    private static AudioTrack createAudioTrack(LatencyTuner tuner) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(tuner.getSampleRate())
+                            .setEncoding(AUDIO_FORMAT)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                            .build())
+                    .setBufferSizeInBytes(tuner.getTrackCapacityBytes())
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                    .build();
+        }
+        return new AudioTrack(
+                android.media.AudioManager.STREAM_MUSIC,
+                tuner.getSampleRate(),
+                AudioFormat.CHANNEL_OUT_STEREO,
+                AUDIO_FORMAT,
+                tuner.getTrackCapacityBytes(),
+                AudioTrack.MODE_STREAM
+        );
+    }
+    
+    @Override
+    public void start() {
+        audioRecord.startRecording();
+        audioTrack.play();
+    }
+    
+    @Override
+    public void stop() {
+        audioRecord.stop();
+        audioTrack.stop();
+    }
+    
+    @Override
+    public void release() {
+        audioRecord.release();
+        audioTrack.release();
+    }
+    
+    @Override
+    public void prepareAudioThread() {
+        // اولویت صوتی فوری تا زمان‌بند نخ پردازش را پشت کارهای رابط کاربری نگه ندارد
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+    }
+    
+    @Override
+    public int read(short[] buffer, int frames) {
+        return audioRecord.read(buffer, 0, frames);
+    }
+    
+    @Override
+    public int write(short[] buffer, int samples) {
+        return audioTrack.write(buffer, 0, samples);
+    }
+    
+    @Override
+    public int getUnderrunCount() {
+        return audioTrack.getUnderrunCount();
+    }
+    
+    @Override
+    public int setBufferSizeInFrames(int frames) {
+        return audioTrack.setBufferSizeInFrames(frames);
+    }
+}
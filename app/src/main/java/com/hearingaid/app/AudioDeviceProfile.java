@@ -0,0 +1,33 @@
+package com.hearingaid.app;
+
+/**
+ * مشخصات صوتی دستگاه که برای تنظیم اندازه بافرها و کاهش تأخیر لازم است
+ * (پیاده‌سازی اندرویدی: AndroidAudioDeviceProfile؛ برای آزمایش منطق اندازه‌گذاری می‌توان دستگاه شبیه‌سازی شده ساخت)
+ */
+public interface AudioDeviceProfile {
+    /**
+     * نرخ نمونه‌برداری بومی خروجی (برای استفاده از مسیر کم‌تأخیر، بدون resampling)
+     */
+    int getNativeSampleRate();
+    
+    /**
+     * تعداد فریم‌های هر burst خروجی بومی دستگاه (0 اگر نامشخص باشد)
+     */
+    int getFramesPerBurst();
+    
+    /**
+     * حداقل اندازه بافر AudioRecord (بایت) برای نرخ نمونه‌برداری داده شده و ورودی مونو 16 بیتی
+     */
+    int getMinRecordBufferBytes(int sampleRate);
+    
+    /**
+     * حداقل اندازه بافر AudioTrack (بایت) برای نرخ نمونه‌برداری داده شده و خروجی استریو 16 بیتی
+     */
+    int getMinTrackBufferBytes(int sampleRate);
+    
+    /**
+     * باز کردن مسیر ورودی/خروجی صدا با اندازه‌های تعیین شده
+     * @return مسیر آماده، یا null اگر راه‌اندازی ناموفق بود
+     */
+    AudioIo open(LatencyTuner tuner);
+}
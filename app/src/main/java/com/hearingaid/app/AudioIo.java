@@ -0,0 +1,51 @@
+package com.hearingaid.app;
+
+/**
+ * مسیر ورودی/خروجی صدا که حلقه‌ی پردازش روی آن اجرا می‌شود
+ * (پیاده‌سازی اندرویدی: AndroidAudioIo روی AudioRecord و AudioTrack؛ در آزمون‌های JVM، SimulatedLoopbackDevice
+ * با ساعت شبیه‌سازی شده)
+ */
+public interface AudioIo {
+    /**
+     * شروع ضبط و پخش
+     */
+    void start();
+    
+    /**
+     * توقف ضبط و پخش؛ read و write مسدود شده آزاد می‌شوند
+     */
+    void stop();
+    
+    /**
+     * آزادسازی منابع (پس از پایان نخ پردازش)
+     */
+    void release();
+    
+    /**
+     * تنظیمات نخ پردازش (مثلاً اولویت)؛ در ابتدای نخ صوتی فراخوانی می‌شود
+     */
+    void prepareAudioThread();
+    
+    /**
+     * خواندن نمونه‌های مونو میکروفون (مسدودکننده)
+     * @return تعداد نمونه‌های خوانده شده یا کد خطای منفی
+     */
+    int read(short[] buffer, int frames);
+    
+    /**
+     * نوشتن نمونه‌های استریو (interleaved) برای پخش (مسدودکننده)
+     * @return تعداد نمونه‌های نوشته شده یا کد خطای منفی
+     */
+    int write(short[] buffer, int samples);
+    
+    /**
+     * تعداد کل underrun های پخش از شروع
+     */
+    int getUnderrunCount();
+    
+    /**
+     * تنظیم اندازه‌ی بافر پخش
+     * @return اندازه‌ی اعمال شده (فریم) یا کد خطای منفی
+     */
+    int setBufferSizeInFrames(int frames);
+}
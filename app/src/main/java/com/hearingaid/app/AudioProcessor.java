@@ -1,11 +1,10 @@
 package com.hearingaid.app;
 
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.AudioTrack;
-import android.media.MediaRecorder;
 import android.util.Log;
 
+import java.io.File;
+import java.util.Arrays;
+
 /**
  * کلاس اصلی پردازش صدا برای سمعک
  * شامل ضبط صدا، پردازش فرکانسی، کاهش نویز و پخش
@@ -13,17 +12,24 @@ import android.util.Log;
 public class AudioProcessor {
     private static final String TAG = "AudioProcessor";
     
-    // تنظیمات صوتی
-    private static final int SAMPLE_RATE = 44100;
-    private static final int CHANNEL_CONFIG_IN = AudioFormat.CHANNEL_IN_MONO; // بیشتر دستگاه‌ها مونو پشتیبانی می‌کنند
-    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
-    private static final int BUFFER_SIZE = AudioRecord.getMinBufferSize(
-            SAMPLE_RATE, CHANNEL_CONFIG_IN, AUDIO_FORMAT) * 2;
+    // محدودیت‌های ضبط تشخیصی
+    private static final int DIAGNOSTIC_RING_BLOCKS = 64;
+    private static final long DIAGNOSTIC_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long DIAGNOSTIC_MAX_DURATION_MS = 5 * 60 * 1000;
+    
+    // نقاط منحنی پاسخ فرکانسی
+    private static final int RESPONSE_POINTS = 256;
+    private static final float RESPONSE_MIN_HZ = 20.0f;
+    private static final float RESPONSE_MAX_HZ = 20000.0f;
     
-    private AudioRecord audioRecord;
-    private AudioTrack audioTrack;
+    // نرخ نمونه‌برداری و اندازه بافرها از مشخصات دستگاه تعیین می‌شوند
+    private final AudioDeviceProfile deviceProfile;
+    private final int sampleRate;
+    private final LatencyTuner latencyTuner;
+    
+    private AudioIo audioIo;
     private Thread processingThread;
-    private boolean isProcessing = false;
+    private volatile boolean isProcessing = false;
     
     // تنظیمات تقویت فرکانسی (برای هر گوش جداگانه)
     private FrequencyGainSettings leftEarGains;
@@ -36,10 +42,58 @@ public class AudioProcessor {
     // برای کاهش نویز
     private NoiseReducer noiseReducer;
     
-    public AudioProcessor() {
+    // کاهش صداهای ضربه‌ای پیش از تقویت (روی ورودی مونو، مشترک برای هر دو گوش)
+    private TransientSuppressor transientSuppressor;
+    
+    // فشرده‌سازی فرکانس برای هر گوش (به طور پیش‌فرض غیرفعال)
+    private FrequencyCompressor leftCompressor;
+    private FrequencyCompressor rightCompressor;
+    
+    // فیلترهای باند هر گوش (در صورت بارگذاری تنظیمات ذخیره شده، از ضرایب آماده ساخته می‌شوند)
+    private FilterBank leftFilterBank;
+    private FilterBank rightFilterBank;
+    
+    // پاسخ فرکانسی تحلیلی هر گوش (در اولین درخواست ساخته می‌شود)
+    private FrequencyResponse leftResponse;
+    private FrequencyResponse rightResponse;
+    
+    // تن آزمون شنوایی (در زمان پخش، جایگزین صدای میکروفون در یک گوش می‌شود)
+    private PureToneOscillator toneOscillator;
+    private volatile boolean toneLeftEar = true;
+    // حالت آزمون شنوایی: صدای میکروفون پخش نمی‌شود و بین تن‌ها هر دو گوش ساکت است
+    private volatile boolean hearingTestMode;
+    
+    // حالت مولد تصادفی dither خروجی (فقط نخ صوتی)
+    private int ditherState = 0x2545F491;
+    
+    // بافرهای کاری (یک بار در شروع پردازش تخصیص داده می‌شوند)
+    private float[] monoChannel;
+    private float[] leftChannel;
+    private float[] rightChannel;
+    
+    // ضبط تشخیصی ورودی/خروجی (اختیاری)
+    private volatile DiagnosticRecorder diagnosticRecorder;
+    // ضبط متوقف شده‌ای که نخ نویسنده‌اش ممکن است هنوز فایل‌ها را تکمیل کند
+    private DiagnosticRecorder stoppedRecorder;
+    
+    // اندازه‌گیری زمان از start() تا نوشتن اولین بافر پردازش شده
+    private long startTimeNanos;
+    private volatile long timeToFirstAudioNanos = -1;
+    
+    /**
+     * @param deviceProfile مشخصات صوتی دستگاه (نرخ بومی و اندازه burst)
+     */
+    public AudioProcessor(AudioDeviceProfile deviceProfile) {
+        this.deviceProfile = deviceProfile;
+        latencyTuner = new LatencyTuner(deviceProfile);
+        sampleRate = latencyTuner.getSampleRate();
         leftEarGains = new FrequencyGainSettings();
         rightEarGains = new FrequencyGainSettings();
-        noiseReducer = new NoiseReducer(SAMPLE_RATE);
+        noiseReducer = new NoiseReducer(sampleRate);
+        transientSuppressor = new TransientSuppressor(sampleRate);
+        toneOscillator = new PureToneOscillator(sampleRate);
+        leftCompressor = new FrequencyCompressor(sampleRate);
+        rightCompressor = new FrequencyCompressor(sampleRate);
     }
     
     /**
@@ -50,43 +104,57 @@ public class AudioProcessor {
             return;
         }
         
+        startTimeNanos = System.nanoTime();
+        timeToFirstAudioNanos = -1;
+        
         try {
-            audioRecord = new AudioRecord(
-                    MediaRecorder.AudioSource.MIC,
-                    SAMPLE_RATE,
-                    CHANNEL_CONFIG_IN,
-                    AUDIO_FORMAT,
-                    BUFFER_SIZE
-            );
+            ensureFilterBanks();
             
-            audioTrack = new AudioTrack(
-                    android.media.AudioManager.STREAM_MUSIC,
-                    SAMPLE_RATE,
-                    AudioFormat.CHANNEL_OUT_STEREO,
-                    AUDIO_FORMAT,
-                    BUFFER_SIZE,
-                    AudioTrack.MODE_STREAM
-            );
+            int readFrames = latencyTuner.getReadFrames();
+            monoChannel = new float[readFrames];
+            leftChannel = new float[readFrames];
+            rightChannel = new float[readFrames];
             
-            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED ||
-                audioTrack.getState() != AudioTrack.STATE_INITIALIZED) {
+            audioIo = deviceProfile.open(latencyTuner);
+            if (audioIo == null) {
                 Log.e(TAG, "خطا در راه‌اندازی ضبط یا پخش صدا");
                 return;
             }
             
-            audioRecord.startRecording();
-            audioTrack.play();
+            // شروع با بافر پخش کوچک (چند burst)؛ در صورت underrun بزرگ‌تر می‌شود
+            latencyTuner.resetUnderrunCount();
+            latencyTuner.setActualTrackBufferFrames(
+                    audioIo.setBufferSizeInFrames(latencyTuner.getTrackBufferFrames()));
+            
+            audioIo.start();
             isProcessing = true;
             
-            processingThread = new Thread(this::processAudio);
+            processingThread = new Thread(this::processAudio, "AudioProcessing");
             processingThread.start();
             
-            Log.d(TAG, "پردازش صدا شروع شد");
+            Log.d(TAG, "پردازش صدا شروع شد: burst=" + latencyTuner.getFramesPerBurst()
+                    + "، بافر پخش=" + latencyTuner.getTrackBufferFrames()
+                    + " فریم، تأخیر تخمینی=" + latencyTuner.getEstimatedLatencyMs() + " ms");
         } catch (Exception e) {
             Log.e(TAG, "خطا در شروع پردازش", e);
+            // AudioRecord/AudioTrack باز شده (و شاید نیمه‌کاره شروع شده) نباید تا start بعدی باقی بماند
+            isProcessing = false;
+            releaseAudioIo();
         }
     }
     
+    private void releaseAudioIo() {
+        if (audioIo == null) {
+            return;
+        }
+        try {
+            audioIo.release();
+        } catch (Exception e) {
+            Log.e(TAG, "خطا در آزادسازی ضبط و پخش", e);
+        }
+        audioIo = null;
+    }
+    
     /**
      * توقف پردازش صدا
      */
@@ -98,22 +166,18 @@ public class AudioProcessor {
         isProcessing = false;
         
         try {
-            if (audioRecord != null) {
-                audioRecord.stop();
-                audioRecord.release();
-                audioRecord = null;
-            }
-            
-            if (audioTrack != null) {
-                audioTrack.stop();
-                audioTrack.release();
-                audioTrack = null;
+            // ابتدا توقف (read/write مسدود آزاد می‌شود)، سپس انتظار برای نخ و بعد آزادسازی منابع
+            if (audioIo != null) {
+                audioIo.stop();
             }
             
             if (processingThread != null) {
                 processingThread.join(1000);
+                processingThread = null;
             }
             
+            releaseAudioIo();
+            
             Log.d(TAG, "پردازش صدا متوقف شد");
         } catch (Exception e) {
             Log.e(TAG, "خطا در توقف پردازش", e);
@@ -124,20 +188,41 @@ public class AudioProcessor {
      * حلقه اصلی پردازش صدا
      */
     private void processAudio() {
-        short[] buffer = new short[BUFFER_SIZE];
-        short[] processedBuffer = new short[BUFFER_SIZE * 2]; // استریو = 2 * مونو
+        AudioIo io = audioIo;
+        io.prepareAudioThread();
+        
+        // خواندن و نوشتن به اندازه‌ی burst دستگاه
+        int readFrames = latencyTuner.getReadFrames();
+        short[] buffer = new short[readFrames];
+        short[] processedBuffer = new short[readFrames * 2]; // استریو = 2 * مونو
         
         while (isProcessing) {
-            int samplesRead = audioRecord.read(buffer, 0, buffer.length);
+            int samplesRead = io.read(buffer, buffer.length);
             
             if (samplesRead > 0) {
                 // پردازش بافر (ورودی مونو، خروجی استریو)
                 processBuffer(buffer, processedBuffer, samplesRead);
                 
+                // کپی در حلقه‌ی ضبط تشخیصی (بدون I/O و بدون انتظار)
+                DiagnosticRecorder recorder = diagnosticRecorder;
+                if (recorder != null) {
+                    recorder.capture(buffer, samplesRead, processedBuffer, samplesRead * 2);
+                }
+                
                 // پخش صدا (خروجی استریو است)
-                int samplesWritten = audioTrack.write(processedBuffer, 0, samplesRead * 2);
+                int samplesWritten = io.write(processedBuffer, samplesRead * 2);
                 if (samplesWritten < 0) {
-                    Log.e(TAG, "خطا در نوشتن به AudioTrack: " + samplesWritten);
+                    Log.e(TAG, "خطا در نوشتن خروجی صدا: " + samplesWritten);
+                } else if (timeToFirstAudioNanos < 0) {
+                    timeToFirstAudioNanos = System.nanoTime() - startTimeNanos;
+                    Log.d(TAG, "زمان تا اولین صدا: " + getTimeToFirstAudioMs() + " ms");
+                }
+                
+                // underrun جدید: بافر پخش یک burst بزرگ‌تر می‌شود
+                if (latencyTuner.onUnderrunCount(io.getUnderrunCount())) {
+                    latencyTuner.setActualTrackBufferFrames(
+                            io.setBufferSizeInFrames(latencyTuner.getTrackBufferFrames()));
+                    Log.w(TAG, "underrun؛ بافر پخش: " + latencyTuner.getTrackBufferFrames() + " فریم");
                 }
             }
         }
@@ -150,28 +235,37 @@ public class AudioProcessor {
     private void processBuffer(short[] input, short[] output, int length) {
         // ورودی مونو است، پس length نمونه داریم
         int numSamples = length;
-        float[] monoChannel = new float[numSamples];
-        float[] leftChannel = new float[numSamples];
-        float[] rightChannel = new float[numSamples];
+        
+        if (hearingTestMode || toneOscillator.isActive()) {
+            renderTestTone(output, numSamples);
+            return;
+        }
         
         // تبدیل ورودی مونو به float
         for (int i = 0; i < numSamples; i++) {
             monoChannel[i] = input[i] / 32768.0f;
         }
         
+        // کاهش صداهای ضربه‌ای پیش از هر تقویتی
+        transientSuppressor.process(monoChannel, numSamples);
+        
         // کپی به هر دو کانال (برای پردازش جداگانه)
         System.arraycopy(monoChannel, 0, leftChannel, 0, numSamples);
         System.arraycopy(monoChannel, 0, rightChannel, 0, numSamples);
         
         // کاهش نویز
         if (noiseReductionLevel > 0) {
-            noiseReducer.reduceNoise(leftChannel, noiseReductionLevel);
-            noiseReducer.reduceNoise(rightChannel, noiseReductionLevel);
+            noiseReducer.reduceNoise(leftChannel, numSamples, noiseReductionLevel);
+            noiseReducer.reduceNoise(rightChannel, numSamples, noiseReductionLevel);
         }
         
+        // فشرده‌سازی فرکانس (انتقال محتوای بالای فرکانس قطع به محدوده قابل شنیدن)
+        leftCompressor.process(leftChannel, numSamples);
+        rightCompressor.process(rightChannel, numSamples);
+        
         // تقویت فرکانسی برای هر کانال (جداگانه)
-        applyFrequencyGain(leftChannel, leftEarGains);
-        applyFrequencyGain(rightChannel, rightEarGains);
+        leftFilterBank.process(leftChannel, numSamples, leftEarGains);
+        rightFilterBank.process(rightChannel, numSamples, rightEarGains);
         
         // اعمال صدا
         for (int i = 0; i < numSamples; i++) {
@@ -179,37 +273,61 @@ public class AudioProcessor {
             rightChannel[i] *= masterVolume;
         }
         
-        // تبدیل به short و ترکیب به استریو (خروجی)
-        int outputLength = numSamples * 2; // استریو = 2 * مونو
+        writeStereo(output, numSamples);
+    }
+    
+    /**
+     * تولید تن آزمون در یک گوش و سکوت در گوش دیگر (بدون تقویت فرکانسی و صدای اصلی، چون سطح تن واسنجی شده است)
+     * وقتی تن فعال نیست (فاصله‌ی بین تن‌ها در حالت آزمون شنوایی) نوسان‌ساز سکوت تولید می‌کند
+     */
+    private void renderTestTone(short[] output, int numSamples) {
+        boolean left = toneLeftEar;
+        float[] toneChannel = left ? leftChannel : rightChannel;
+        float[] silentChannel = left ? rightChannel : leftChannel;
+        toneOscillator.render(toneChannel, numSamples);
+        Arrays.fill(silentChannel, 0, numSamples, 0.0f);
+        writeStereo(output, numSamples);
+    }
+    
+    /**
+     * تبدیل کانال‌های چپ و راست به short و ترکیب به استریو (خروجی)
+     */
+    private void writeStereo(short[] output, int numSamples) {
         for (int i = 0; i < numSamples; i++) {
-            output[i * 2] = (short) Math.max(-32768, Math.min(32767, leftChannel[i] * 32767.0f));
-            output[i * 2 + 1] = (short) Math.max(-32768, Math.min(32767, rightChannel[i] * 32767.0f));
+            output[i * 2] = toShort(leftChannel[i]);
+            output[i * 2 + 1] = toShort(rightChannel[i]);
         }
     }
     
     /**
-     * اعمال تقویت فرکانسی با استفاده از فیلترهای IIR
+     * تبدیل به 16 بیت با dither مثلثی (TPDF، ±1 LSB) و گرد کردن به نزدیک‌ترین مقدار
+     * بدون dither، دامنه‌های کمتر از یک LSB (تن‌های نزدیک آستانه‌ی شنوایی) بریده و صفر می‌شدند؛ با آن سطح
+     * میانگین درست می‌ماند. سکوت دیجیتال (صفر) بدون dither صفر می‌ماند
      */
-    private void applyFrequencyGain(float[] samples, FrequencyGainSettings gains) {
-        // استفاده از فیلترهای باند برای هر فرکانس
-        for (FrequencyBand band : FrequencyBand.values()) {
-            float gain = gains.getGain(band);
-            if (Math.abs(gain - 1.0f) > 0.01f) { // اگر تقویت نیاز باشد
-                applyBandGain(samples, band, gain);
-            }
+    private short toShort(float sample) {
+        if (sample == 0.0f) {
+            return 0;
         }
+        // xorshift32؛ مجموع دو عدد یکنواخت 16 بیتی توزیع مثلثی دارد
+        int r = ditherState;
+        r ^= r << 13;
+        r ^= r >>> 17;
+        r ^= r << 5;
+        ditherState = r;
+        float dither = ((r & 0xFFFF) + (r >>> 16) - 65535) * (1.0f / 65536.0f);
+        int value = Math.round(sample * 32767.0f + dither);
+        return (short) Math.max(-32768, Math.min(32767, value));
     }
     
     /**
-     * اعمال تقویت برای یک باند فرکانسی خاص
+     * ساخت فیلترهای باند در صورتی که از قبل (مثلاً از تنظیمات ذخیره شده) آماده نشده باشند
      */
-    private void applyBandGain(float[] samples, FrequencyBand band, float gain) {
-        // فیلتر باند-پس ساده با استفاده از FFT یا فیلتر IIR
-        // برای سادگی، از فیلتر IIR استفاده می‌کنیم
-        
-        IIRFilter filter = band.getFilter(SAMPLE_RATE);
-        if (filter != null) {
-            filter.process(samples, gain);
+    private synchronized void ensureFilterBanks() {
+        if (leftFilterBank == null) {
+            leftFilterBank = new FilterBank(sampleRate);
+        }
+        if (rightFilterBank == null) {
+            rightFilterBank = new FilterBank(sampleRate);
         }
     }
     
@@ -222,6 +340,171 @@ public class AudioProcessor {
         return rightEarGains;
     }
     
+    public FilterBank getLeftFilterBank() {
+        ensureFilterBanks();
+        return leftFilterBank;
+    }
+    
+    public FilterBank getRightFilterBank() {
+        ensureFilterBanks();
+        return rightFilterBank;
+    }
+    
+    /**
+     * جایگزینی فیلترهای باند با فیلترهای آماده (فقط زمانی که پردازش متوقف است)
+     */
+    public synchronized void setFilterBanks(FilterBank left, FilterBank right) {
+        if (isProcessing) {
+            Log.w(TAG, "تغییر فیلترها در حین پردازش مجاز نیست");
+            return;
+        }
+        this.leftFilterBank = left;
+        this.rightFilterBank = right;
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public LatencyTuner getLatencyTuner() {
+        return latencyTuner;
+    }
+    
+    public FrequencyCompressor getLeftFrequencyCompressor() {
+        return leftCompressor;
+    }
+    
+    public FrequencyCompressor getRightFrequencyCompressor() {
+        return rightCompressor;
+    }
+    
+    /**
+     * تنظیم فشرده‌سازی فرکانس برای یک گوش
+     * @param isLeftEar گوش چپ یا راست
+     * @param cutoffHz فرکانسی که فشرده‌سازی از آن شروع می‌شود
+     * @param ratio نسبت فشرده‌سازی (1.0 = غیرفعال)
+     */
+    public void setFrequencyCompression(boolean isLeftEar, float cutoffHz, float ratio) {
+        FrequencyCompressor compressor = isLeftEar ? leftCompressor : rightCompressor;
+        compressor.setParameters(cutoffHz, ratio);
+    }
+    
+    /**
+     * پاسخ فرکانسی زنجیره‌ی تنظیم شده‌ی یک گوش (فیلترهای باند، تقویت‌ها و صدا)
+     * تا زمانی که تنظیمات یا صدا تغییر نکند، نتیجه‌ی قبلی بدون محاسبه بازگردانده می‌شود
+     */
+    public synchronized FrequencyResponse getFrequencyResponse(boolean isLeftEar) {
+        ensureFilterBanks();
+        if (isLeftEar) {
+            if (leftResponse == null) {
+                leftResponse = createFrequencyResponse();
+            }
+            leftResponse.compute(leftFilterBank, leftEarGains, masterVolume);
+            return leftResponse;
+        }
+        if (rightResponse == null) {
+            rightResponse = createFrequencyResponse();
+        }
+        rightResponse.compute(rightFilterBank, rightEarGains, masterVolume);
+        return rightResponse;
+    }
+    
+    private FrequencyResponse createFrequencyResponse() {
+        float maxHz = Math.min(RESPONSE_MAX_HZ, sampleRate / 2.0f);
+        return new FrequencyResponse(sampleRate, RESPONSE_POINTS, RESPONSE_MIN_HZ, maxHz);
+    }
+    
+    /**
+     * پخش تن آزمون شنوایی در یک گوش (پردازش باید در حال اجرا باشد)
+     * @param isLeftEar گوش چپ یا راست
+     * @param frequencyHz فرکانس تن
+     * @param amplitude دامنه‌ی خطی نسبت به تمام‌مقیاس
+     */
+    public void startTestTone(boolean isLeftEar, float frequencyHz, float amplitude) {
+        if (toneOscillator.isActive() && toneLeftEar != isLeftEar) {
+            // تعویض گوش در حین پخش باعث قطع ناگهانی می‌شود
+            Log.w(TAG, "تن قبلی هنوز در حال پخش است");
+            return;
+        }
+        toneLeftEar = isLeftEar;
+        toneOscillator.start(frequencyHz, amplitude);
+    }
+    
+    public void stopTestTone() {
+        toneOscillator.stop();
+    }
+    
+    /**
+     * ورود/خروج از حالت آزمون شنوایی؛ در این حالت به جای صدای تقویت شده‌ی میکروفون فقط تن آزمون
+     * (یا سکوت) پخش می‌شود تا صدای محیط در فاصله‌ی بین تن‌ها پاسخ کاربر را خراب نکند
+     */
+    public void setHearingTestMode(boolean enabled) {
+        hearingTestMode = enabled;
+    }
+    
+    public boolean isHearingTestMode() {
+        return hearingTestMode;
+    }
+    
+    public boolean isTestToneActive() {
+        return toneOscillator.isActive();
+    }
+    
+    /**
+     * شروع ضبط تشخیصی صدای میکروفون و خروجی پردازش شده در پوشه‌ی داده شده
+     */
+    public synchronized boolean startDiagnosticRecording(File directory) {
+        if (isDiagnosticRecording()) {
+            return false;
+        }
+        // ضبط قبلی که با رسیدن به سقف زمان یا حجم پایان یافته است
+        stopDiagnosticRecording();
+        if (stoppedRecorder != null && !stoppedRecorder.isFinished()) {
+            Log.w(TAG, "نوشتن فایل‌های ضبط قبلی هنوز تمام نشده است");
+            return false;
+        }
+        DiagnosticRecorder recorder = new DiagnosticRecorder(directory, sampleRate, latencyTuner.getReadFrames(),
+                DIAGNOSTIC_RING_BLOCKS, DIAGNOSTIC_MAX_BYTES, DIAGNOSTIC_MAX_DURATION_MS);
+        if (!recorder.start()) {
+            return false;
+        }
+        diagnosticRecorder = recorder;
+        return true;
+    }
+    
+    /**
+     * توقف ضبط تشخیصی (یا آزادسازی ضبطی که خودکار پایان یافته است)؛ منتظر نوشتن فایل‌ها نمی‌ماند
+     * @return ضبط‌کننده‌ی متوقف شده (فایل‌ها و بلوک‌های از دست رفته پس از isFinished() نهایی‌اند) یا null
+     */
+    public synchronized DiagnosticRecorder stopDiagnosticRecording() {
+        DiagnosticRecorder recorder = diagnosticRecorder;
+        diagnosticRecorder = null;
+        if (recorder != null) {
+            recorder.stop();
+            stoppedRecorder = recorder;
+        }
+        return recorder;
+    }
+    
+    /**
+     * false پس از توقف یا پایان خودکار ضبط (سقف زمان یا حجم)
+     */
+    public boolean isDiagnosticRecording() {
+        DiagnosticRecorder recorder = diagnosticRecorder;
+        return recorder != null && recorder.isRecording();
+    }
+    
+    /**
+     * تنظیم شدت کاهش صداهای ضربه‌ای (0.0 = خاموش، 1.0 = حداکثر)؛ به طور پیش‌فرض خاموش است
+     */
+    public void setTransientSuppression(float depth) {
+        transientSuppressor.setDepth(depth);
+    }
+    
+    public float getTransientSuppression() {
+        return transientSuppressor.getDepth();
+    }
+    
     public void setNoiseReductionLevel(float level) {
         this.noiseReductionLevel = Math.max(0.0f, Math.min(1.0f, level));
     }
@@ -241,5 +524,13 @@ public class AudioProcessor {
     public boolean isProcessing() {
         return isProcessing;
     }
+    
+    /**
+     * زمان از start() تا نوشتن اولین بافر پردازش شده (میلی‌ثانیه)، یا -1 اگر هنوز اندازه‌گیری نشده
+     */
+    public float getTimeToFirstAudioMs() {
+        long nanos = timeToFirstAudioNanos;
+        return nanos < 0 ? -1.0f : nanos / 1000000.0f;
+    }
 }
 
@@ -0,0 +1,52 @@
+package com.hearingaid.app;
+
+import java.util.Arrays;
+
+/**
+ * آستانه‌های شنوایی یک گوش (dB HL) در فرکانس مرکزی هر باند
+ */
+public class Audiogram {
+    private final float[] thresholds = new float[FrequencyBand.values().length];
+    
+    public Audiogram() {
+        clear();
+    }
+    
+    /**
+     * ثبت آستانه‌ی شنوایی یک باند
+     * @param thresholdDbHl آستانه بر حسب dB HL
+     */
+    public void setThreshold(FrequencyBand band, float thresholdDbHl) {
+        thresholds[band.ordinal()] = thresholdDbHl;
+    }
+    
+    /**
+     * آستانه‌ی یک باند، یا NaN اگر اندازه‌گیری نشده باشد
+     */
+    public float getThreshold(FrequencyBand band) {
+        return thresholds[band.ordinal()];
+    }
+    
+    public boolean hasThreshold(FrequencyBand band) {
+        return !Float.isNaN(thresholds[band.ordinal()]);
+    }
+    
+    /**
+     * میانگین آستانه‌های اندازه‌گیری شده‌ی باندهای داده شده، یا NaN اگر هیچ‌کدام اندازه‌گیری نشده باشد
+     */
+    public float getAverage(FrequencyBand... bands) {
+        float sum = 0.0f;
+        int count = 0;
+        for (FrequencyBand band : bands) {
+            if (hasThreshold(band)) {
+                sum += getThreshold(band);
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : Float.NaN;
+    }
+    
+    public void clear() {
+        Arrays.fill(thresholds, Float.NaN);
+    }
+}
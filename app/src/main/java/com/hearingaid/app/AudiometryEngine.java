@@ -0,0 +1,225 @@
+package com.hearingaid.app;
+
+import java.util.Arrays;
+
+/**
+ * روند آزمون شنوایی تن خالص (Hughson-Westlake ساده شده) برای هر دو گوش
+ *
+ * هر تن از 40 dB HL شروع می‌شود؛ پس از شنیدن 10 dB پایین و پس از نشنیدن 5 dB بالا می‌رود. آستانه
+ * کمترین سطحی است که در دو مسیر صعودی شنیده شود. این کلاس فقط منطق آزمون است و صدا را پخش نمی‌کند؛
+ * دامنه‌ی تن از getToneAmplitude() و واسنجی هر باند (سطح dBFS معادل 0 dB HL) به دست می‌آید
+ *
+ * تن هیچ‌گاه زیر MIN_TONE_DBFS پخش نمی‌شود: نزدیک کف کوانتش 16 بیتی (حدود -90 dBFS) آنچه شنیده
+ * می‌شود dither است نه تن. بنابراین کمترین سطح هر باند به واسنجی آن بستگی دارد (getMinLevelDb)
+ * و شنیدن در آن سطح یعنی آستانه حداکثر همین مقدار است
+ */
+public class AudiometryEngine {
+    public static final float START_LEVEL_DB = 40.0f;
+    public static final float MIN_LEVEL_DB = -10.0f;
+    public static final float MAX_LEVEL_DB = 90.0f;
+    private static final float STEP_DOWN_DB = 10.0f;
+    private static final float STEP_UP_DB = 5.0f;
+    private static final int REQUIRED_ASCENDING_HITS = 2;
+    private static final int MAX_PRESENTATIONS = 30;
+    
+    // سطح dBFS معادل 0 dB HL بدون واسنجی هدفون
+    public static final float DEFAULT_REFERENCE_DBFS = -100.0f;
+    // کمترین سطح تن: حدود 10 dB بالاتر از کف کوانتش 16 بیتی
+    public static final float MIN_TONE_DBFS = -80.0f;
+    
+    // ترتیب استاندارد: 1000 هرتز، سپس فرکانس‌های بالا و بعد پایین
+    private static final FrequencyBand[] TEST_ORDER = {
+            FrequencyBand.MID_1000, FrequencyBand.MID_2000, FrequencyBand.HIGH_4000, FrequencyBand.HIGH_8000,
+            FrequencyBand.MID_500, FrequencyBand.LOW_250, FrequencyBand.LOW_125
+    };
+    
+    private final Audiogram leftAudiogram = new Audiogram();
+    private final Audiogram rightAudiogram = new Audiogram();
+    private final float[] referenceDbFs = new float[FrequencyBand.values().length];
+    private final boolean[] calibrated = new boolean[FrequencyBand.values().length];
+    private final int[] ascendingHits = new int[Math.round((MAX_LEVEL_DB - MIN_LEVEL_DB) / STEP_UP_DB) + 1];
+    
+    private boolean running;
+    private boolean leftEar;
+    private int bandIndex;
+    private float levelDb;
+    private boolean ascending;
+    private int presentations;
+    
+    public AudiometryEngine() {
+        Arrays.fill(referenceDbFs, DEFAULT_REFERENCE_DBFS);
+    }
+    
+    /**
+     * تنظیم واسنجی یک باند
+     * @param dbFsAtZeroHl سطح تمام‌مقیاس (dBFS) که برای این هدفون/دستگاه معادل 0 dB HL است
+     */
+    public void setCalibration(FrequencyBand band, float dbFsAtZeroHl) {
+        referenceDbFs[band.ordinal()] = dbFsAtZeroHl;
+        calibrated[band.ordinal()] = true;
+    }
+    
+    /**
+     * آیا همه‌ی باندهای آزمون واسنجی شده‌اند؛ در غیر این صورت آستانه‌ها (و تقویت تجویز شده) تقریبی هستند
+     */
+    public boolean isCalibrated() {
+        for (FrequencyBand band : TEST_ORDER) {
+            if (!calibrated[band.ordinal()]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * شروع آزمون از گوش چپ
+     */
+    public void start() {
+        leftAudiogram.clear();
+        rightAudiogram.clear();
+        leftEar = true;
+        bandIndex = 0;
+        running = true;
+        beginBand();
+    }
+    
+    public void cancel() {
+        running = false;
+    }
+    
+    private void beginBand() {
+        levelDb = Math.max(START_LEVEL_DB, getMinLevelDb(getCurrentBand()));
+        ascending = false;
+        presentations = 0;
+        Arrays.fill(ascendingHits, 0);
+    }
+    
+    /**
+     * ثبت پاسخ کاربر به تن فعلی و رفتن به سطح یا فرکانس بعدی
+     * @param heard آیا کاربر تن را شنید
+     * @return true اگر آزمون ادامه دارد
+     */
+    public boolean onResponse(boolean heard) {
+        if (!running) {
+            return false;
+        }
+        presentations++;
+        
+        if (heard) {
+            if (ascending && ++ascendingHits[levelIndex(levelDb)] >= REQUIRED_ASCENDING_HITS) {
+                return recordThreshold(levelDb);
+            }
+            float minLevelDb = getMinLevelDb(getCurrentBand());
+            if (levelDb <= minLevelDb) {
+                // شنیدن در کمترین سطح قابل پخش
+                return recordThreshold(minLevelDb);
+            }
+            levelDb = Math.max(minLevelDb, levelDb - STEP_DOWN_DB);
+            ascending = false;
+        } else {
+            if (levelDb >= MAX_LEVEL_DB) {
+                // بدون پاسخ در بیشترین سطح
+                return recordThreshold(MAX_LEVEL_DB);
+            }
+            levelDb = Math.min(MAX_LEVEL_DB, levelDb + STEP_UP_DB);
+            ascending = true;
+        }
+        
+        if (presentations >= MAX_PRESENTATIONS) {
+            // پاسخ‌های ناپایدار: کمترین سطحی که در مسیر صعودی شنیده شد (یا سطح فعلی)
+            return recordThreshold(lowestAscendingHit());
+        }
+        return true;
+    }
+    
+    /**
+     * کمترین سطح قابل ارائه در یک باند (dB HL، مضرب گام 5 dB) که تن آن از MIN_TONE_DBFS کمتر نشود
+     */
+    public float getMinLevelDb(FrequencyBand band) {
+        float floorDb = (float) Math.ceil((MIN_TONE_DBFS - referenceDbFs[band.ordinal()]) / STEP_UP_DB) * STEP_UP_DB;
+        return Math.min(MAX_LEVEL_DB, Math.max(MIN_LEVEL_DB, floorDb));
+    }
+    
+    private int levelIndex(float level) {
+        return Math.round((level - MIN_LEVEL_DB) / STEP_UP_DB);
+    }
+    
+    private float lowestAscendingHit() {
+        for (int i = 0; i < ascendingHits.length; i++) {
+            if (ascendingHits[i] > 0) {
+                return MIN_LEVEL_DB + i * STEP_UP_DB;
+            }
+        }
+        return levelDb;
+    }
+    
+    private boolean recordThreshold(float threshold) {
+        getAudiogram(leftEar).setThreshold(TEST_ORDER[bandIndex], threshold);
+        if (bandIndex + 1 < TEST_ORDER.length) {
+            bandIndex++;
+        } else if (leftEar) {
+            leftEar = false;
+            bandIndex = 0;
+        } else {
+            running = false;
+            return false;
+        }
+        beginBand();
+        return true;
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * آیا آستانه‌های همه‌ی باندهای هر دو گوش ثبت شده است
+     */
+    public boolean isComplete() {
+        for (FrequencyBand band : TEST_ORDER) {
+            if (!leftAudiogram.hasThreshold(band) || !rightAudiogram.hasThreshold(band)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public boolean isLeftEar() {
+        return leftEar;
+    }
+    
+    public FrequencyBand getCurrentBand() {
+        return TEST_ORDER[bandIndex];
+    }
+    
+    public float getCurrentLevelDb() {
+        return levelDb;
+    }
+    
+    /**
+     * دامنه‌ی خطی تن فعلی نسبت به تمام‌مقیاس (حداکثر 1)
+     */
+    public float getToneAmplitude() {
+        float dbFs = referenceDbFs[getCurrentBand().ordinal()] + levelDb;
+        return (float) Math.min(1.0, Math.pow(10.0, dbFs / 20.0));
+    }
+    
+    public Audiogram getAudiogram(boolean isLeftEar) {
+        return isLeftEar ? leftAudiogram : rightAudiogram;
+    }
+    
+    /**
+     * اعمال تقویت تجویز شده برای هر دو گوش؛ آستانه‌های بدون واسنجی به سطح صدای گوشی و حدس مرجع
+     * بستگی دارند و مبنای تقویت واقعی نمی‌شوند
+     * @return false اگر هدفون واسنجی نشده و تقویت‌ها تغییر نکردند
+     */
+    public boolean applyPrescription(PrescriptionRule rule, FrequencyGainSettings leftGains,
+                                     FrequencyGainSettings rightGains) {
+        if (!isCalibrated()) {
+            return false;
+        }
+        rule.apply(leftAudiogram, leftGains);
+        rule.apply(rightAudiogram, rightGains);
+        return true;
+    }
+}
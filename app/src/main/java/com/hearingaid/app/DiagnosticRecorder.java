@@ -0,0 +1,287 @@
+package com.hearingaid.app;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ضبط تشخیصی صدای ورودی میکروفون و خروجی پردازش شده (استریو) در فایل‌های WAV
+ * نخ صوتی فقط بلوک‌ها را در یک حلقه‌ی بدون قفل (تک تولیدکننده / تک مصرف‌کننده) کپی می‌کند؛
+ * نوشتن در فایل در یک نخ پس‌زمینه انجام می‌شود. اگر حلقه پر باشد بلوک دور ریخته و شمارش می‌شود
+ */
+public class DiagnosticRecorder {
+    private static final String TAG = "DiagnosticRecorder";
+    
+    private static final int WAV_HEADER_SIZE = 44;
+    private static final long IDLE_WAIT_NANOS = 5000000L; // 5 ms
+    
+    private final File directory;
+    private final int sampleRate;
+    private final int blockCapacity;
+    private final long maxBytes;
+    private final long maxInputSamples;
+    
+    // حلقه‌ی از پیش تخصیص داده شده
+    private final short[][] inputSlots;
+    private final short[][] outputSlots;
+    private final int[] inputLengths;
+    private final int[] outputLengths;
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    
+    private final AtomicLong droppedBlocks = new AtomicLong();
+    private final AtomicLong recordedBlocks = new AtomicLong();
+    
+    private volatile boolean recording = false;
+    private volatile boolean running = false;
+    // تا خروج واقعی نخ نگه داشته می‌شود تا ضبط جدید با نخ قبلی هم‌زمان نشود
+    private Thread writerThread;
+    private long capturedInputSamples;
+    
+    private File inputFile;
+    private File outputFile;
+    
+    /**
+     * @param directory پوشه‌ی ذخیره فایل‌ها
+     * @param sampleRate نرخ نمونه‌برداری
+     * @param blockCapacity حداکثر تعداد نمونه‌های ورودی (مونو) در هر بلوک
+     * @param ringBlocks تعداد بلوک‌های حلقه
+     * @param maxBytes حداکثر حجم مجموع دو فایل (بایت)
+     * @param maxDurationMs حداکثر مدت ضبط (میلی‌ثانیه)
+     */
+    public DiagnosticRecorder(File directory, int sampleRate, int blockCapacity, int ringBlocks,
+                              long maxBytes, long maxDurationMs) {
+        if (ringBlocks <= 0 || blockCapacity <= 0) {
+            throw new IllegalArgumentException("اندازه حلقه و بلوک باید مثبت باشد");
+        }
+        this.directory = directory;
+        this.sampleRate = sampleRate;
+        this.blockCapacity = blockCapacity;
+        this.maxBytes = maxBytes;
+        this.maxInputSamples = maxDurationMs * sampleRate / 1000;
+        
+        inputSlots = new short[ringBlocks][blockCapacity];
+        outputSlots = new short[ringBlocks][blockCapacity * 2];
+        inputLengths = new int[ringBlocks];
+        outputLengths = new int[ringBlocks];
+    }
+    
+    /**
+     * شروع ضبط و راه‌اندازی نخ نویسنده
+     */
+    public synchronized boolean start() {
+        if (!isFinished()) {
+            return false;
+        }
+        
+        String suffix = String.valueOf(System.currentTimeMillis());
+        inputFile = new File(directory, "mic_" + suffix + ".wav");
+        outputFile = new File(directory, "out_" + suffix + ".wav");
+        
+        writeIndex.set(0);
+        readIndex.set(0);
+        droppedBlocks.set(0);
+        recordedBlocks.set(0);
+        capturedInputSamples = 0;
+        
+        running = true;
+        recording = true;
+        writerThread = new Thread(this::drainLoop, TAG);
+        writerThread.start();
+        Log.d(TAG, "ضبط تشخیصی شروع شد: " + inputFile.getName());
+        return true;
+    }
+    
+    /**
+     * توقف ضبط بدون انتظار (قابل فراخوانی از نخ رابط کاربری)
+     * نخ نویسنده بلوک‌های باقی‌مانده را می‌نویسد، هدر فایل‌ها را تکمیل می‌کند و خارج می‌شود؛
+     * فایل‌ها و شمارنده‌ها پس از isFinished() نهایی‌اند
+     */
+    public void stop() {
+        recording = false;
+        running = false;
+    }
+    
+    /**
+     * true اگر نخ نویسنده خارج شده (یا هرگز شروع نشده) است
+     */
+    public synchronized boolean isFinished() {
+        return writerThread == null || !writerThread.isAlive();
+    }
+    
+    /**
+     * کپی یک بلوک ورودی و خروجی در حلقه (فراخوانی از نخ صوتی؛ بدون قفل، بدون I/O، بدون تخصیص)
+     * @param input نمونه‌های مونو میکروفون
+     * @param inputLength تعداد نمونه‌های ورودی
+     * @param output نمونه‌های استریو پردازش شده (interleaved)
+     * @param outputLength تعداد نمونه‌های خروجی
+     * @return false اگر ضبط پایان یافته است (بلوک نه نوشته و نه از دست رفته شمرده می‌شود)
+     */
+    public boolean capture(short[] input, int inputLength, short[] output, int outputLength) {
+        if (!recording) {
+            return false;
+        }
+        if (capturedInputSamples >= maxInputSamples) {
+            // سقف زمانی: ضبط جدید متوقف می‌شود و نخ نویسنده فایل‌ها را می‌بندد
+            recording = false;
+            return false;
+        }
+        
+        long write = writeIndex.get();
+        int slots = inputSlots.length;
+        if (write - readIndex.get() >= slots
+                || inputLength > blockCapacity || outputLength > blockCapacity * 2) {
+            droppedBlocks.incrementAndGet();
+            return true;
+        }
+        
+        int slot = (int) (write % slots);
+        System.arraycopy(input, 0, inputSlots[slot], 0, inputLength);
+        System.arraycopy(output, 0, outputSlots[slot], 0, outputLength);
+        inputLengths[slot] = inputLength;
+        outputLengths[slot] = outputLength;
+        capturedInputSamples += inputLength;
+        
+        // انتشار بلوک برای نخ نویسنده
+        writeIndex.lazySet(write + 1);
+        return true;
+    }
+    
+    /**
+     * حلقه‌ی نخ نویسنده: خالی کردن حلقه در فایل‌های WAV
+     */
+    private void drainLoop() {
+        ByteBuffer inputBytes = ByteBuffer.allocateDirect(blockCapacity * 2).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer outputBytes = ByteBuffer.allocateDirect(blockCapacity * 4).order(ByteOrder.LITTLE_ENDIAN);
+        
+        try (RandomAccessFile inputRaf = new RandomAccessFile(inputFile, "rw");
+             RandomAccessFile outputRaf = new RandomAccessFile(outputFile, "rw")) {
+            FileChannel inputChannel = inputRaf.getChannel();
+            FileChannel outputChannel = outputRaf.getChannel();
+            inputChannel.truncate(0);
+            outputChannel.truncate(0);
+            
+            // هدر موقت؛ اندازه‌ها در پایان اصلاح می‌شوند
+            writeFully(inputChannel, wavHeader(1, 0), 0);
+            writeFully(outputChannel, wavHeader(2, 0), 0);
+            long inputDataBytes = 0;
+            long outputDataBytes = 0;
+            boolean sizeLimitReached = false;
+            
+            while (true) {
+                long read = readIndex.get();
+                if (read == writeIndex.get()) {
+                    if (!running || !recording) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                    continue;
+                }
+                
+                int slot = (int) (read % inputSlots.length);
+                int inputLength = inputLengths[slot];
+                int outputLength = outputLengths[slot];
+                
+                long blockBytes = 2L * (inputLength + outputLength);
+                if (sizeLimitReached
+                        || 2 * WAV_HEADER_SIZE + inputDataBytes + outputDataBytes + blockBytes > maxBytes) {
+                    // سقف حجم: بلوک‌های بعدی نوشته نمی‌شوند و از دست رفته شمرده می‌شوند
+                    sizeLimitReached = true;
+                    recording = false;
+                    droppedBlocks.incrementAndGet();
+                } else {
+                    inputBytes.clear();
+                    inputBytes.asShortBuffer().put(inputSlots[slot], 0, inputLength);
+                    inputBytes.limit(inputLength * 2);
+                    outputBytes.clear();
+                    outputBytes.asShortBuffer().put(outputSlots[slot], 0, outputLength);
+                    outputBytes.limit(outputLength * 2);
+                    
+                    writeFully(inputChannel, inputBytes, WAV_HEADER_SIZE + inputDataBytes);
+                    writeFully(outputChannel, outputBytes, WAV_HEADER_SIZE + outputDataBytes);
+                    inputDataBytes += inputLength * 2L;
+                    outputDataBytes += outputLength * 2L;
+                    recordedBlocks.incrementAndGet();
+                }
+                
+                // آزاد کردن خانه برای نخ صوتی
+                readIndex.lazySet(read + 1);
+            }
+            
+            writeFully(inputChannel, wavHeader(1, inputDataBytes), 0);
+            writeFully(outputChannel, wavHeader(2, outputDataBytes), 0);
+            inputChannel.force(true);
+            outputChannel.force(true);
+            Log.d(TAG, "ضبط تشخیصی پایان یافت: " + recordedBlocks.get() + " بلوک، "
+                    + droppedBlocks.get() + " بلوک از دست رفته");
+        } catch (IOException e) {
+            Log.e(TAG, "خطا در نوشتن فایل‌های تشخیصی", e);
+        } finally {
+            recording = false;
+            running = false;
+            // بلوک‌هایی که پس از خطا در حلقه مانده‌اند نوشته نمی‌شوند؛ writeIndex یک بار خوانده می‌شود
+            // تا بلوکی که بین دو خواندن منتشر شود نه جا بماند و نه شمرده نشود
+            long write = writeIndex.get();
+            droppedBlocks.addAndGet(write - readIndex.get());
+            readIndex.set(write);
+        }
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    /**
+     * ساخت هدر WAV برای PCM شانزده بیتی
+     */
+    private ByteBuffer wavHeader(int channels, long dataBytes) {
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        int blockAlign = channels * 2;
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) (36 + dataBytes));
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) 1); // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) 16);
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) dataBytes);
+        header.flip();
+        return header;
+    }
+    
+    /**
+     * false پس از توقف یا پایان خودکار ضبط (رسیدن به سقف زمان یا حجم، یا خطای نوشتن)
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+    
+    public long getDroppedBlocks() {
+        return droppedBlocks.get();
+    }
+    
+    public long getRecordedBlocks() {
+        return recordedBlocks.get();
+    }
+    
+    public File getInputFile() {
+        return inputFile;
+    }
+    
+    public File getOutputFile() {
+        return outputFile;
+    }
+}
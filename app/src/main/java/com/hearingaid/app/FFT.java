@@ -0,0 +1,89 @@
+package com.hearingaid.app;
+
+/**
+ * تبدیل فوریه سریع (radix-2) درجا
+ * جدول‌های twiddle و بیت‌معکوس یک بار در سازنده محاسبه می‌شوند و در حین تبدیل هیچ تخصیص حافظه‌ای انجام نمی‌شود
+ */
+public class FFT {
+    private final int size;
+    private final float[] cosTable;
+    private final float[] sinTable;
+    private final int[] bitReverse;
+    
+    /**
+     * @param size اندازه تبدیل (باید توانی از 2 باشد)
+     */
+    public FFT(int size) {
+        if (size < 2 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("اندازه FFT باید توانی از 2 باشد: " + size);
+        }
+        this.size = size;
+        this.cosTable = new float[size / 2];
+        this.sinTable = new float[size / 2];
+        this.bitReverse = new int[size];
+        
+        for (int i = 0; i < size / 2; i++) {
+            double angle = 2.0 * Math.PI * i / size;
+            cosTable[i] = (float) Math.cos(angle);
+            sinTable[i] = (float) Math.sin(angle);
+        }
+        
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * تبدیل مستقیم (بدون نرمال‌سازی)
+     */
+    public void forward(float[] re, float[] im) {
+        transform(re, im, -1.0f);
+    }
+    
+    /**
+     * تبدیل معکوس (بدون نرمال‌سازی؛ خروجی size برابر بزرگ‌تر است)
+     */
+    public void inverse(float[] re, float[] im) {
+        transform(re, im, 1.0f);
+    }
+    
+    private void transform(float[] re, float[] im, float sign) {
+        // مرتب‌سازی بیت‌معکوس
+        for (int i = 0; i < size; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                float tr = re[i];
+                re[i] = re[j];
+                re[j] = tr;
+                float ti = im[i];
+                im[i] = im[j];
+                im[j] = ti;
+            }
+        }
+        
+        // مراحل پروانه‌ای
+        for (int half = 1; half < size; half <<= 1) {
+            int step = size / (half * 2);
+            for (int start = 0; start < size; start += half * 2) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cosTable[k * step];
+                    float wi = sign * sinTable[k * step];
+                    int even = start + k;
+                    int odd = even + half;
+                    
+                    float tr = re[odd] * wr - im[odd] * wi;
+                    float ti = re[odd] * wi + im[odd] * wr;
+                    re[odd] = re[even] - tr;
+                    im[odd] = im[even] - ti;
+                    re[even] += tr;
+                    im[even] += ti;
+                }
+            }
+        }
+    }
+}
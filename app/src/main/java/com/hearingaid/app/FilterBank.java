@@ -0,0 +1,92 @@
+package com.hearingaid.app;
+
+/**
+ * مجموعه فیلترهای باند فرکانسی برای یک گوش
+ * فیلترها یک بار ساخته می‌شوند و حالت آن‌ها بین بافرها حفظ می‌شود
+ */
+public class FilterBank {
+    private static final FrequencyBand[] BANDS = FrequencyBand.values();
+    
+    private final IIRFilter[] filters;
+    // بافر کاری مشترک باندهای double
+    private final double[] work = new double[IIRFilter.DOUBLE_CHUNK];
+    
+    /**
+     * طراحی فیلترها برای تمام باندها
+     * @param sampleRate نرخ نمونه‌برداری
+     */
+    public FilterBank(int sampleRate) {
+        filters = new IIRFilter[BANDS.length];
+        for (FrequencyBand band : BANDS) {
+            filters[band.ordinal()] = band.getFilter(sampleRate);
+        }
+    }
+    
+    /**
+     * ساخت از فیلترهای آماده (مثلاً ضرایب بارگذاری شده از فایل)
+     * @param filters یک فیلتر برای هر باند، به ترتیب FrequencyBand.values()
+     */
+    public FilterBank(IIRFilter[] filters) {
+        if (filters.length != BANDS.length) {
+            throw new IllegalArgumentException("تعداد فیلترها با تعداد باندها برابر نیست");
+        }
+        this.filters = filters.clone();
+    }
+    
+    /**
+     * دریافت فیلتر یک باند
+     */
+    public IIRFilter getFilter(FrequencyBand band) {
+        return filters[band.ordinal()];
+    }
+    
+    /**
+     * اعمال تقویت فرکانسی روی length نمونه‌ی اول بافر
+     */
+    public void process(float[] samples, int length, FrequencyGainSettings gains) {
+        // باندهای double (پایین) ابتدا روی یک بافر double مشترک اجرا می‌شوند تا تبدیل float/double
+        // به ازای هر تکه فقط یک بار انجام شود؛ ترتیب فیلترهای خطی در زنجیره اثری در نتیجه ندارد
+        boolean anyDouble = false;
+        for (FrequencyBand band : BANDS) {
+            if (filters[band.ordinal()].isDoublePrecision() && isActive(gains.getGain(band))) {
+                anyDouble = true;
+                break;
+            }
+        }
+        if (anyDouble) {
+            for (int offset = 0; offset < length; offset += work.length) {
+                int n = Math.min(work.length, length - offset);
+                IIRFilter.toDouble(samples, offset, work, n);
+                for (FrequencyBand band : BANDS) {
+                    IIRFilter filter = filters[band.ordinal()];
+                    float gain = gains.getGain(band);
+                    if (filter.isDoublePrecision() && isActive(gain)) {
+                        filter.process(work, n, gain);
+                    }
+                }
+                IIRFilter.toFloat(work, samples, offset, n);
+            }
+        }
+        
+        for (FrequencyBand band : BANDS) {
+            IIRFilter filter = filters[band.ordinal()];
+            float gain = gains.getGain(band);
+            if (!filter.isDoublePrecision() && isActive(gain)) {
+                filter.process(samples, length, gain);
+            }
+        }
+    }
+    
+    private static boolean isActive(float gain) {
+        return Math.abs(gain - 1.0f) > 0.01f; // اگر تقویت نیاز باشد
+    }
+    
+    /**
+     * ریست حالت تمام فیلترها
+     */
+    public void reset() {
+        for (IIRFilter filter : filters) {
+            filter.reset();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.hearingaid.app;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ذخیره و بارگذاری تنظیمات سمعک (fitting) در یک فایل باینری فشرده و نسخه‌دار
+ * شامل تقویت هر دو گوش، سطح کاهش نویز، صدا، شدت کاهش صداهای ضربه‌ای و ضرایب فیلترهای طراحی شده
+ *
+ * قالب فایل (little-endian):
+ *   int    MAGIC
+ *   short  نسخه قالب
+ *   short  تعداد باندها
+ *   int    نرخ نمونه‌برداری
+ *   float  سطح کاهش نویز
+ *   float  صدا
+ *   برای هر گوش (چپ، سپس راست) و هر باند:
+ *     float تقویت خطی
+ *     double b0, b1, b2, a0, a1, a2 (تا نسخه 2 به صورت float)
+ *   از نسخه 2، برای هر گوش (چپ، سپس راست):
+ *     float فرکانس قطع فشرده‌سازی فرکانس
+ *     float نسبت فشرده‌سازی فرکانس
+ *   از نسخه 4:
+ *     int   شناسه‌ی طراحی فیلترها (FrequencyBand.getDesignHash)
+ *   از نسخه 5:
+ *     float شدت کاهش صداهای ضربه‌ای (0.0 = خاموش)
+ */
+public class FittingStore {
+    private static final String TAG = "FittingStore";
+    
+    private static final int MAGIC = 0x48414654; // "HAFT"
+    private static final short FORMAT_VERSION = 5;
+    // ضرایب float نسخه‌های قدیمی برای باندهای پایین دقت کافی ندارند و دوباره طراحی می‌شوند
+    private static final short FIRST_DOUBLE_COEFFICIENT_VERSION = 3;
+    // ضرایب بدون شناسه‌ی طراحی (نسخه 3) یا با شناسه‌ی دیگر هم دوباره طراحی می‌شوند
+    private static final short FIRST_DESIGN_HASH_VERSION = 4;
+    // نسخه‌های قدیمی‌تر شدت کاهش ضربه را ندارند و پیش‌فرض (خاموش) می‌ماند
+    private static final short FIRST_TRANSIENT_VERSION = 5;
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 4 + 4;
+    private static final int COEFFICIENT_COUNT = 6;
+    private static final int BAND_RECORD_SIZE = 4 + 8 * COEFFICIENT_COUNT;
+    private static final int LEGACY_BAND_RECORD_SIZE = 4 + 4 * COEFFICIENT_COUNT;
+    private static final int COMPRESSION_RECORD_SIZE = 4 * 2;
+    
+    // محدوده‌ی مجاز مقادیر خوانده شده (تقویت خطی ±40 dB، بیش از محدوده‌ی ±20 dB رابط کاربری)
+    private static final float MIN_LINEAR_GAIN = 0.01f;
+    private static final float MAX_LINEAR_GAIN = 100.0f;
+    private static final float MAX_MASTER_VOLUME = 2.0f;
+    
+    private final File file;
+    
+    public FittingStore(File file) {
+        this.file = file;
+    }
+    
+    /**
+     * ذخیره تنظیمات فعلی پردازشگر
+     * ابتدا در یک فایل موقت نوشته و سپس جایگزین می‌شود تا فایل نیمه‌کاره باقی نماند
+     */
+    public boolean save(AudioProcessor processor) {
+        FrequencyBand[] bands = FrequencyBand.values();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * bands.length * BAND_RECORD_SIZE
+                + 2 * COMPRESSION_RECORD_SIZE + 4 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        
+        buffer.putInt(MAGIC);
+        buffer.putShort(FORMAT_VERSION);
+        buffer.putShort((short) bands.length);
+        buffer.putInt(processor.getSampleRate());
+        buffer.putFloat(processor.getNoiseReductionLevel());
+        buffer.putFloat(processor.getMasterVolume());
+        writeEar(buffer, processor.getLeftEarGains(), processor.getLeftFilterBank());
+        writeEar(buffer, processor.getRightEarGains(), processor.getRightFilterBank());
+        writeCompression(buffer, processor.getLeftFrequencyCompressor());
+        writeCompression(buffer, processor.getRightFrequencyCompressor());
+        buffer.putInt(FrequencyBand.getDesignHash());
+        buffer.putFloat(processor.getTransientSuppression());
+        buffer.flip();
+        
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Log.e(TAG, "خطا در ذخیره تنظیمات", e);
+            return false;
+        }
+        
+        if (!tmpFile.renameTo(file)) {
+            Log.e(TAG, "خطا در جایگزینی فایل تنظیمات");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * بارگذاری تنظیمات ذخیره شده در پردازشگر
+     * ضرایب فیلتر مستقیماً از فایل خوانده می‌شوند تا در شروع پردازش نیازی به طراحی فیلتر نباشد
+     * @return true اگر تنظیمات با موفقیت بارگذاری شد
+     */
+    public boolean load(AudioProcessor processor) {
+        if (!file.exists()) {
+            return false;
+        }
+        
+        long startNanos = System.nanoTime();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            FrequencyBand[] bands = FrequencyBand.values();
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                Log.w(TAG, "فایل تنظیمات نامعتبر است");
+                return false;
+            }
+            short version = buffer.getShort();
+            short bandCount = buffer.getShort();
+            // نسخه 1 فاقد تنظیمات فشرده‌سازی فرکانس است
+            int compressionSize = version >= 2 ? 2 * COMPRESSION_RECORD_SIZE : 0;
+            int designHashSize = version >= FIRST_DESIGN_HASH_VERSION ? 4 : 0;
+            int transientSize = version >= FIRST_TRANSIENT_VERSION ? 4 : 0;
+            boolean doubleCoefficients = version >= FIRST_DOUBLE_COEFFICIENT_VERSION;
+            int bandRecordSize = doubleCoefficients ? BAND_RECORD_SIZE : LEGACY_BAND_RECORD_SIZE;
+            if (version < 1 || version > FORMAT_VERSION || bandCount != bands.length
+                    || buffer.remaining() < 12 + 2 * bands.length * bandRecordSize + compressionSize + designHashSize
+                    + transientSize) {
+                Log.w(TAG, "نسخه یا ساختار فایل تنظیمات پشتیبانی نمی‌شود: " + version);
+                return false;
+            }
+            
+            int sampleRate = buffer.getInt();
+            float noiseReductionLevel = buffer.getFloat();
+            float masterVolume = buffer.getFloat();
+            
+            // همه‌ی مقادیر پیش از هر تغییری در پردازشگر خوانده و بررسی می‌شوند
+            float[] leftGains = new float[bands.length];
+            float[] rightGains = new float[bands.length];
+            FilterBank left = readEar(buffer, leftGains, doubleCoefficients);
+            FilterBank right = readEar(buffer, rightGains, doubleCoefficients);
+            float[] compression = new float[4];
+            if (version >= 2) {
+                for (int i = 0; i < compression.length; i++) {
+                    compression[i] = buffer.getFloat();
+                }
+            }
+            boolean currentDesign = designHashSize > 0 && buffer.getInt() == FrequencyBand.getDesignHash();
+            float transientDepth = transientSize > 0 ? buffer.getFloat() : 0.0f;
+            // ضرایب فقط برای همان طراحی و همان نرخ نمونه‌برداری معتبرند؛ در غیر این صورت فیلترها دوباره طراحی می‌شوند
+            boolean useCoefficients = doubleCoefficients && currentDesign && sampleRate == processor.getSampleRate();
+            
+            if (!isInRange(noiseReductionLevel, 0.0f, 1.0f) || !isInRange(masterVolume, 0.0f, MAX_MASTER_VOLUME)
+                    || !areGainsValid(leftGains) || !areGainsValid(rightGains)
+                    || (version >= 2 && !isCompressionValid(compression))
+                    || !isInRange(transientDepth, 0.0f, 1.0f)
+                    || (useCoefficients && (left == null || right == null))) {
+                Log.w(TAG, "مقادیر فایل تنظیمات نامعتبر است");
+                return false;
+            }
+            
+            applyGains(leftGains, processor.getLeftEarGains());
+            applyGains(rightGains, processor.getRightEarGains());
+            if (version >= 2) {
+                processor.setFrequencyCompression(true, compression[0], compression[1]);
+                processor.setFrequencyCompression(false, compression[2], compression[3]);
+            }
+            
+            processor.setNoiseReductionLevel(noiseReductionLevel);
+            processor.setMasterVolume(masterVolume);
+            if (transientSize > 0) {
+                processor.setTransientSuppression(transientDepth);
+            }
+            
+            if (useCoefficients) {
+                processor.setFilterBanks(left, right);
+            } else if (!doubleCoefficients || !currentDesign) {
+                Log.d(TAG, "ضرایب فایل قدیمی نادیده گرفته شد؛ فیلترها دوباره طراحی می‌شوند");
+            } else {
+                Log.w(TAG, "نرخ نمونه‌برداری تغییر کرده است؛ فیلترها دوباره طراحی می‌شوند");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "خطا در بارگذاری تنظیمات", e);
+            return false;
+        }
+        
+        Log.d(TAG, "تنظیمات در " + (System.nanoTime() - startNanos) / 1000 + " µs بارگذاری شد");
+        return true;
+    }
+    
+    private static void writeEar(ByteBuffer buffer, FrequencyGainSettings gains, FilterBank filterBank) {
+        for (FrequencyBand band : FrequencyBand.values()) {
+            IIRFilter filter = filterBank.getFilter(band);
+            double[] b = filter.getNumerator();
+            double[] a = filter.getDenominator();
+            
+            buffer.putFloat(gains.getGain(band));
+            buffer.putDouble(b[0]);
+            buffer.putDouble(b[1]);
+            buffer.putDouble(b[2]);
+            buffer.putDouble(a[0]);
+            buffer.putDouble(a[1]);
+            buffer.putDouble(a[2]);
+        }
+    }
+    
+    private static void writeCompression(ByteBuffer buffer, FrequencyCompressor compressor) {
+        buffer.putFloat(compressor.getCutoffHz());
+        buffer.putFloat(compressor.getRatio());
+    }
+    
+    /**
+     * خواندن تقویت‌ها و ضرایب یک گوش
+     * @return فیلترهای ساخته شده از ضرایب؛ null برای نسخه‌های قدیمی با ضرایب float یا اگر ضریبی نامعتبر است
+     */
+    private static FilterBank readEar(ByteBuffer buffer, float[] gains, boolean doubleCoefficients) {
+        FrequencyBand[] bands = FrequencyBand.values();
+        IIRFilter[] filters = new IIRFilter[bands.length];
+        boolean valid = true;
+        for (FrequencyBand band : bands) {
+            gains[band.ordinal()] = buffer.getFloat();
+            
+            if (!doubleCoefficients) {
+                buffer.position(buffer.position() + 4 * COEFFICIENT_COUNT);
+                continue;
+            }
+            double[] b = {buffer.getDouble(), buffer.getDouble(), buffer.getDouble()};
+            double[] a = {buffer.getDouble(), buffer.getDouble(), buffer.getDouble()};
+            if (!areCoefficientsValid(b, a)) {
+                valid = false;
+                continue;
+            }
+            filters[band.ordinal()] = new IIRFilter(b, a);
+        }
+        return doubleCoefficients && valid ? new FilterBank(filters) : null;
+    }
+    
+    private static void applyGains(float[] values, FrequencyGainSettings gains) {
+        for (FrequencyBand band : FrequencyBand.values()) {
+            gains.setLinearGain(band, values[band.ordinal()]);
+        }
+    }
+    
+    private static boolean isInRange(float value, float min, float max) {
+        // NaN در هیچ مقایسه‌ای درست نیست و رد می‌شود
+        return value >= min && value <= max;
+    }
+    
+    private static boolean areGainsValid(float[] gains) {
+        for (float gain : gains) {
+            if (!isInRange(gain, MIN_LINEAR_GAIN, MAX_LINEAR_GAIN)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * فرکانس قطع و نسبت هر دو گوش (چپ، سپس راست)
+     */
+    private static boolean isCompressionValid(float[] compression) {
+        for (int i = 0; i < compression.length; i += 2) {
+            if (!isInRange(compression[i], 0.0f, Float.MAX_VALUE)
+                    || !isInRange(compression[i + 1], 1.0f, FrequencyCompressor.MAX_RATIO)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * ضرایب محدود و فیلتر پایدار: پس از نرمال‌سازی با a0، قطب‌ها داخل دایره‌ی واحد (مثلث پایداری biquad)
+     */
+    private static boolean areCoefficientsValid(double[] b, double[] a) {
+        for (int i = 0; i < 3; i++) {
+            if (Double.isNaN(b[i]) || Double.isInfinite(b[i]) || Double.isNaN(a[i]) || Double.isInfinite(a[i])) {
+                return false;
+            }
+        }
+        if (a[0] == 0.0) {
+            return false;
+        }
+        double a1 = a[1] / a[0];
+        double a2 = a[2] / a[0];
+        return Math.abs(a2) < 1.0 && Math.abs(a1) < 1.0 + a2;
+    }
+}
@@ -12,6 +12,9 @@ public enum FrequencyBand {
     HIGH_4000(4000, 8000),
     HIGH_8000(8000, 16000);
     
+    // فاکتور کیفیت فیلترهای باند-پس
+    private static final float Q = 2.0f;
+    
     private final float centerFreq;
     private final float bandwidth;
     
@@ -51,8 +54,20 @@ public enum FrequencyBand {
      */
     public IIRFilter getFilter(int sampleRate) {
         // ایجاد فیلتر باند-پس برای این فرکانس
-        float q = 2.0f; // فاکتور کیفیت
-        return new IIRFilter(sampleRate, centerFreq, bandwidth, q);
+        return new IIRFilter(sampleRate, centerFreq, bandwidth, Q);
+    }
+    
+    /**
+     * شناسه‌ی طراحی فیلترهای همه‌ی باندها (نسخه‌ی روش طراحی و پارامترهای هر باند)
+     * ضرایب ذخیره شده با شناسه‌ی دیگری مال طراحی قدیمی‌اند و نباید استفاده شوند
+     */
+    public static int getDesignHash() {
+        int hash = IIRFilter.DESIGN_VERSION;
+        for (FrequencyBand band : values()) {
+            hash = 31 * hash + Float.floatToIntBits(band.centerFreq);
+            hash = 31 * hash + Float.floatToIntBits(band.bandwidth);
+        }
+        return 31 * hash + Float.floatToIntBits(Q);
     }
 }
 
@@ -0,0 +1,361 @@
+package com.hearingaid.app;
+
+import java.util.Arrays;
+
+/**
+ * فشرده‌سازی غیرخطی فرکانس (frequency lowering) برای افت شنوایی شدید در فرکانس‌های بالا
+ * محتوای بالای فرکانس قطع با رابطه f' = fc * (f / fc)^(1 / ratio) به محدوده قابل شنیدن منتقل می‌شود
+ * پیاده‌سازی به صورت phase vocoder جریانی (STFT) است؛ تمام فریم‌ها، جدول‌ها و آرایه‌های فاز
+ * از قبل تخصیص داده می‌شوند تا پردازش بلادرنگ بدون تخصیص حافظه انجام شود
+ */
+public class FrequencyCompressor {
+    private static final int FFT_SIZE = 512;
+    private static final int OVERSAMPLING = 4;
+    private static final int HOP_SIZE = FFT_SIZE / OVERSAMPLING;
+    private static final int LATENCY = FFT_SIZE - HOP_SIZE;
+    private static final int NUM_BINS = FFT_SIZE / 2 + 1;
+    private static final float TWO_PI = (float) (2.0 * Math.PI);
+    // اختلاف فاز مورد انتظار بین دو فریم متوالی برای هر بین
+    private static final float EXPECTED_PHASE_STEP = TWO_PI * HOP_SIZE / FFT_SIZE;
+    // نیم‌پهنای لوب اصلی پنجره‌ی Hann (بین)
+    private static final int MAIN_LOBE_HALF_WIDTH = 2;
+    
+    public static final float MIN_CUTOFF_HZ = 500.0f;
+    public static final float MAX_RATIO = 4.0f;
+    
+    private final int sampleRate;
+    private final float binHz;
+    private final FFT fft;
+    private final float[] window;
+    private final float outputScale;
+    
+    // فریم‌ها و حالت جریانی
+    private final float[] inFifo = new float[FFT_SIZE];
+    private final float[] outFifo = new float[FFT_SIZE];
+    private final float[] outputAccum = new float[FFT_SIZE];
+    private final float[] re = new float[FFT_SIZE];
+    private final float[] im = new float[FFT_SIZE];
+    private int rover = LATENCY;
+    
+    // تحلیل و سنتز طیفی
+    private final float[] lastPhase = new float[NUM_BINS];
+    private final float[] sumPhase = new float[NUM_BINS];
+    private final float[] anaMagn = new float[NUM_BINS];
+    private final float[] anaFreq = new float[NUM_BINS];
+    private final float[] synMagn = new float[NUM_BINS];
+    private final float[] synFreq = new float[NUM_BINS];
+    private final int[] peakOf = new int[NUM_BINS];
+    private final int[] analysisPeaks = new int[NUM_BINS];
+    private final int[] regionEnds = new int[NUM_BINS];
+    
+    private float cutoffHz;
+    private float ratio = 1.0f;
+    // null یعنی غیرفعال (بدون تأخیر و بدون پردازش)
+    private volatile Mapping mapping;
+    private Mapping activeMapping;
+    
+    /**
+     * جدول نگاشت از پیش محاسبه شده برای هر بین
+     */
+    private static final class Mapping {
+        final int firstCompressedBin;
+        final float[] mappedCenter = new float[NUM_BINS];
+        final float[] slope = new float[NUM_BINS];
+        
+        Mapping(int firstCompressedBin) {
+            this.firstCompressedBin = firstCompressedBin;
+        }
+    }
+    
+    public FrequencyCompressor(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.binHz = (float) sampleRate / FFT_SIZE;
+        this.fft = new FFT(FFT_SIZE);
+        this.window = new float[FFT_SIZE];
+        for (int i = 0; i < FFT_SIZE; i++) {
+            window[i] = 0.5f - 0.5f * (float) Math.cos(TWO_PI * i / FFT_SIZE);
+        }
+        this.cutoffHz = sampleRate / 2.0f;
+        
+        // جبران بهره‌ی پنجره‌ی تحلیل و سنتز در overlap-add
+        float windowEnergy = 0.0f;
+        for (int i = 0; i < FFT_SIZE; i++) {
+            windowEnergy += window[i] * window[i];
+        }
+        this.outputScale = 2.0f / (FFT_SIZE / 2 * OVERSAMPLING) / (windowEnergy / HOP_SIZE);
+    }
+    
+    /**
+     * تنظیم فرکانس قطع و نسبت فشرده‌سازی
+     * نسبت 1.0 (یا کمتر) فشرده‌سازی را غیرفعال می‌کند
+     * @param cutoffHz فرکانس شروع فشرده‌سازی
+     * @param ratio نسبت فشرده‌سازی (1.0 تا MAX_RATIO)
+     */
+    public void setParameters(float cutoffHz, float ratio) {
+        this.cutoffHz = Math.max(MIN_CUTOFF_HZ, Math.min(sampleRate / 2.0f, cutoffHz));
+        this.ratio = Math.max(1.0f, Math.min(MAX_RATIO, ratio));
+        this.mapping = isEnabled() ? buildMapping(this.cutoffHz, this.ratio) : null;
+    }
+    
+    public float getCutoffHz() {
+        return cutoffHz;
+    }
+    
+    public float getRatio() {
+        return ratio;
+    }
+    
+    public boolean isEnabled() {
+        return ratio > 1.0f && cutoffHz < sampleRate / 2.0f;
+    }
+    
+    /**
+     * تأخیر افزوده شده در حالت فعال (نمونه)
+     */
+    public int getLatencySamples() {
+        return LATENCY;
+    }
+    
+    /**
+     * نگاشت فرکانس ورودی به فرکانس خروجی
+     */
+    public static float mapFrequency(float frequencyHz, float cutoffHz, float ratio) {
+        if (frequencyHz <= cutoffHz) {
+            return frequencyHz;
+        }
+        return cutoffHz * (float) Math.pow(frequencyHz / cutoffHz, 1.0 / ratio);
+    }
+    
+    private Mapping buildMapping(float cutoff, float compressionRatio) {
+        int firstBin = (int) Math.floor(cutoff / binHz) + 1;
+        Mapping m = new Mapping(firstBin);
+        for (int k = 0; k < NUM_BINS; k++) {
+            float centerHz = k * binHz;
+            if (k < firstBin) {
+                m.mappedCenter[k] = centerHz;
+                m.slope[k] = 1.0f;
+            } else {
+                m.mappedCenter[k] = mapFrequency(centerHz, cutoff, compressionRatio);
+                // مشتق نگاشت برای تصحیح خطی انحراف فرکانس واقعی از مرکز بین
+                m.slope[k] = (float) (Math.pow(centerHz / cutoff, 1.0 / compressionRatio - 1.0) / compressionRatio);
+            }
+        }
+        return m;
+    }
+    
+    /**
+     * پردازش درجای length نمونه‌ی اول بافر
+     */
+    public void process(float[] samples, int length) {
+        Mapping m = mapping;
+        if (m == null) {
+            activeMapping = null;
+            return;
+        }
+        if (activeMapping == null) {
+            // فعال‌سازی مجدد: حالت قدیمی نباید در خروجی شنیده شود
+            reset();
+        }
+        activeMapping = m;
+        
+        for (int i = 0; i < length; i++) {
+            inFifo[rover] = samples[i];
+            samples[i] = outFifo[rover - LATENCY];
+            rover++;
+            
+            if (rover >= FFT_SIZE) {
+                rover = LATENCY;
+                processFrame(m);
+            }
+        }
+    }
+    
+    private void processFrame(Mapping m) {
+        for (int k = 0; k < FFT_SIZE; k++) {
+            re[k] = inFifo[k] * window[k];
+            im[k] = 0.0f;
+        }
+        fft.forward(re, im);
+        
+        // تحلیل: اندازه و فرکانس واقعی هر بین
+        for (int k = 0; k < NUM_BINS; k++) {
+            float phase = (float) Math.atan2(im[k], re[k]);
+            float delta = phase - lastPhase[k] - k * EXPECTED_PHASE_STEP;
+            lastPhase[k] = phase;
+            delta = wrapPhase(delta);
+            
+            anaMagn[k] = 2.0f * (float) Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+            anaFreq[k] = (k + OVERSAMPLING * delta / TWO_PI) * binHz;
+        }
+        
+        // نگاشت بین‌ها: بین‌های زیر فرکانس قطع بدون تغییر؛ بالای آن هر قله‌ی طیف همراه با کل ناحیه‌اش
+        // (لوب پنجره) به فرکانس نگاشت شده‌اش جابه‌جا می‌شود تا شکل لوب و در نتیجه سطح مؤلفه حفظ شود
+        // (انتخاب جداگانه‌ی هر بین مقصد لوب را باریک می‌کرد و سطح تا حدود 4 dB کم می‌شد)
+        int peakCount = findAnalysisPeaks();
+        // لوب اصلی اولین قله‌ی بالای فرکانس قطع به طور کامل جابه‌جا می‌شود، حتی بخشی که زیر فرکانس قطع است
+        // (در غیر این صورت دو نیمه‌ی لوب با فاز متفاوت سنتز می‌شوند و سطح مؤلفه‌های نزدیک فرکانس قطع کم می‌شود)
+        int remapStart = m.firstCompressedBin;
+        for (int i = 0; i < peakCount; i++) {
+            if (analysisPeaks[i] >= m.firstCompressedBin) {
+                int lobeStart = Math.max(i == 0 ? 0 : regionEnds[i - 1], m.firstCompressedBin - MAIN_LOBE_HALF_WIDTH);
+                remapStart = Math.min(remapStart, lobeStart);
+                break;
+            }
+        }
+        for (int k = 0; k < remapStart; k++) {
+            synMagn[k] = anaMagn[k];
+            synFreq[k] = anaFreq[k];
+        }
+        for (int k = remapStart; k < NUM_BINS; k++) {
+            synMagn[k] = 0.0f;
+            synFreq[k] = k * binHz;
+        }
+        int regionStart = 0;
+        for (int i = 0; i < peakCount; i++) {
+            if (regionEnds[i] > remapStart) {
+                shiftRegion(m, analysisPeaks[i], Math.max(regionStart, remapStart), regionEnds[i], remapStart);
+            }
+            regionStart = regionEnds[i];
+        }
+        
+        // سنتز با انباشت فاز
+        for (int k = 0; k < NUM_BINS; k++) {
+            float deviation = (synFreq[k] - k * binHz) / binHz;
+            sumPhase[k] = wrapPhase(sumPhase[k] + TWO_PI * deviation / OVERSAMPLING + k * EXPECTED_PHASE_STEP);
+        }
+        assignPeaks(remapStart);
+        for (int k = 0; k < NUM_BINS; k++) {
+            float phase = sumPhase[k];
+            if (k >= remapStart) {
+                // قفل فاز روی قله‌ی محلی: بین‌های کناری یک مؤلفه نسبت به قله اختلاف فاز π دارند
+                // (مانند لوب پنجره‌ی Hann) تا مؤلفه‌ی منتقل شده با همان سطح بازسازی شود
+                int peak = peakOf[k];
+                phase = sumPhase[peak] + (float) Math.PI * (k - peak);
+            }
+            re[k] = synMagn[k] * (float) Math.cos(phase);
+            im[k] = synMagn[k] * (float) Math.sin(phase);
+        }
+        for (int k = NUM_BINS; k < FFT_SIZE; k++) {
+            re[k] = 0.0f;
+            im[k] = 0.0f;
+        }
+        fft.inverse(re, im);
+        
+        // overlap-add
+        for (int k = 0; k < FFT_SIZE; k++) {
+            outputAccum[k] += outputScale * window[k] * re[k];
+        }
+        System.arraycopy(outputAccum, 0, outFifo, 0, HOP_SIZE);
+        System.arraycopy(outputAccum, HOP_SIZE, outputAccum, 0, LATENCY);
+        Arrays.fill(outputAccum, LATENCY, FFT_SIZE, 0.0f);
+        System.arraycopy(inFifo, HOP_SIZE, inFifo, 0, LATENCY);
+    }
+    
+    /**
+     * بیشینه‌های محلی طیف تحلیل و ناحیه‌ی هر کدام (تا کمینه‌ی طیف پیش از قله‌ی بعدی)
+     * @return تعداد قله‌ها (به ترتیب صعودی در analysisPeaks، پایان ناحیه‌ی هر قله در regionEnds)
+     */
+    private int findAnalysisPeaks() {
+        int count = 0;
+        for (int k = 1; k < NUM_BINS - 1; k++) {
+            if (anaMagn[k] > anaMagn[k - 1] && anaMagn[k] >= anaMagn[k + 1]) {
+                analysisPeaks[count++] = k;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            regionEnds[i] = NUM_BINS;
+            if (i + 1 < count) {
+                int valley = analysisPeaks[i] + 1;
+                for (int k = valley + 1; k < analysisPeaks[i + 1]; k++) {
+                    if (anaMagn[k] < anaMagn[valley]) {
+                        valley = k;
+                    }
+                }
+                regionEnds[i] = valley;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * جابه‌جایی ناحیه‌ی [start, end) یک قله به اندازه‌ی فاصله‌ی (کسری) فرکانس واقعی قله تا فرکانس نگاشت شده‌اش
+     * اندازه‌ی بین‌های مقصد با درون‌یابی خطی لوب منبع به دست می‌آید تا شکل لوب با موقعیت کسری جدید قله
+     * هم‌خوان باشد؛ در هم‌پوشانی نواحی، بین قوی‌تر نگه داشته می‌شود
+     */
+    private void shiftRegion(Mapping m, int peak, int start, int end, int remapStart) {
+        if (peak < m.firstCompressedBin) {
+            // قله‌ی زیر فرکانس قطع: دنباله‌ی لوب بالای آن بدون تغییر
+            for (int k = start; k < end; k++) {
+                if (anaMagn[k] > synMagn[k]) {
+                    synMagn[k] = anaMagn[k];
+                    synFreq[k] = anaFreq[k];
+                }
+            }
+            return;
+        }
+        float targetHz = m.mappedCenter[peak] + m.slope[peak] * (anaFreq[peak] - peak * binHz);
+        float shift = (targetHz - anaFreq[peak]) / binHz;
+        int destStart = Math.max(remapStart, (int) Math.ceil(start + shift));
+        int destEnd = Math.min(NUM_BINS - 1, (int) Math.floor(end - 1 + shift));
+        for (int dest = destStart; dest <= destEnd; dest++) {
+            float source = dest - shift;
+            int lower = (int) Math.floor(source);
+            float fraction = source - lower;
+            float magnitude = lower + 1 < end
+                    ? anaMagn[lower] * (1.0f - fraction) + anaMagn[lower + 1] * fraction
+                    : anaMagn[lower];
+            if (magnitude > synMagn[dest]) {
+                synMagn[dest] = magnitude;
+                // همه‌ی بین‌های لوب فرکانس قله را دارند (مانند طیف تحلیل یک سینوسی)
+                synFreq[dest] = targetHz;
+            }
+        }
+    }
+    
+    /**
+     * تعیین قله‌ی محلی هر بین در ناحیه‌ی فشرده شده (مرز نواحی در کمینه‌ی بین دو قله)
+     */
+    private void assignPeaks(int firstBin) {
+        int regionStart = firstBin;
+        int peak = firstBin;
+        for (int k = firstBin + 1; k < NUM_BINS; k++) {
+            boolean valley = synMagn[k] < synMagn[k - 1]
+                    && (k == NUM_BINS - 1 || synMagn[k] <= synMagn[k + 1]);
+            if (synMagn[k] > synMagn[peak]) {
+                peak = k;
+            }
+            if (valley) {
+                for (int j = regionStart; j < k; j++) {
+                    peakOf[j] = peak;
+                }
+                regionStart = k;
+                peak = k;
+            }
+        }
+        for (int j = regionStart; j < NUM_BINS; j++) {
+            peakOf[j] = peak;
+        }
+    }
+    
+    private static float wrapPhase(float phase) {
+        phase = phase % TWO_PI;
+        if (phase > Math.PI) {
+            phase -= TWO_PI;
+        } else if (phase < -Math.PI) {
+            phase += TWO_PI;
+        }
+        return phase;
+    }
+    
+    /**
+     * ریست حالت جریانی
+     */
+    public void reset() {
+        Arrays.fill(inFifo, 0.0f);
+        Arrays.fill(outFifo, 0.0f);
+        Arrays.fill(outputAccum, 0.0f);
+        Arrays.fill(lastPhase, 0.0f);
+        Arrays.fill(sumPhase, 0.0f);
+        rover = LATENCY;
+    }
+}
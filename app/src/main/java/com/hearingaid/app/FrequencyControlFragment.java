@@ -95,6 +95,21 @@ public class FrequencyControlFragment extends Fragment {
         frequencyTextViews.put(band, textView);
     }
     
+    /**
+     * به‌روزرسانی SeekBar ها از تنظیمات (مثلاً پس از تجویز خودکار تقویت)
+     */
+    public void refreshGains() {
+        if (frequencySeekBars == null) {
+            return;
+        }
+        for (Map.Entry<FrequencyBand, SeekBar> entry : frequencySeekBars.entrySet()) {
+            FrequencyBand band = entry.getKey();
+            float gainDb = gainSettings.getGainDb(band);
+            entry.getValue().setProgress((int) ((gainDb + 20.0f) * 10.0f));
+            updateFrequencyText(frequencyTextViews.get(band), (int) band.getCenterFrequency() + " Hz", gainDb);
+        }
+    }
+    
     private void updateFrequencyText(TextView textView, String label, float gainDb) {
         String sign = gainDb >= 0 ? "+" : "";
         textView.setText(String.format("%s: %s%.1f dB", label, sign, gainDb));
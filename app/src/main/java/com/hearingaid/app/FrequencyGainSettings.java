@@ -9,6 +9,9 @@ import java.util.Map;
 public class FrequencyGainSettings {
     private Map<FrequencyBand, Float> gains;
     
+    // با هر تغییر تقویت افزایش می‌یابد تا مصرف‌کننده‌ها تغییر را تشخیص دهند
+    private volatile int version = 0;
+    
     public FrequencyGainSettings() {
         gains = new HashMap<>();
         // مقدار پیش‌فرض: بدون تقویت
@@ -25,7 +28,15 @@ public class FrequencyGainSettings {
     public void setGain(FrequencyBand band, float gainDb) {
         // تبدیل dB به ضریب خطی: gain = 10^(gainDb/20)
         float linearGain = (float) Math.pow(10.0, gainDb / 20.0);
+        setLinearGain(band, linearGain);
+    }
+    
+    /**
+     * تنظیم مستقیم تقویت خطی برای یک باند (مثلاً هنگام بارگذاری تنظیمات ذخیره شده)
+     */
+    public void setLinearGain(FrequencyBand band, float linearGain) {
         gains.put(band, linearGain);
+        version++;
     }
     
     /**
@@ -35,6 +46,13 @@ public class FrequencyGainSettings {
         return gains.getOrDefault(band, 1.0f);
     }
     
+    /**
+     * نسخه‌ی فعلی تنظیمات؛ با هر تغییر تقویت عوض می‌شود
+     */
+    public int getVersion() {
+        return version;
+    }
+    
     /**
      * دریافت تقویت بر حسب dB
      */
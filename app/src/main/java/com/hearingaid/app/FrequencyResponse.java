@@ -0,0 +1,151 @@
+package com.hearingaid.app;
+
+/**
+ * محاسبه تحلیلی پاسخ فرکانسی (اندازه و فاز) زنجیره‌ی فیلتر یک گوش مستقیماً از ضرایب biquad
+ * زنجیره: صدا × حاصل‌ضرب (تقویت × فیلتر باند) برای باندهای فعال، همان ترتیبی که FilterBank اعمال می‌کند
+ *
+ * جدول‌های sin/cos فرکانس‌ها و پاسخ مختلط هر باند یک بار محاسبه می‌شوند؛ با تغییر تقویت‌ها فقط
+ * ضرب مختلط باندهای فعال تکرار می‌شود و نتیجه تا تغییر نسخه‌ی تنظیمات یا صدا در حافظه می‌ماند
+ * (مراحل غیرخطی مانند کاهش نویز و فشرده‌سازی فرکانس در این پاسخ لحاظ نمی‌شوند)
+ */
+public class FrequencyResponse {
+    private static final FrequencyBand[] BANDS = FrequencyBand.values();
+    // همان آستانه‌ی FilterBank برای فعال بودن یک باند
+    private static final float ACTIVE_GAIN_THRESHOLD = 0.01f;
+    
+    private final float[] frequencies;
+    // جدول‌ها با دقت double، چون قطب‌های باندهای پایین بسیار نزدیک z=1 هستند
+    private final double[] cosW;
+    private final double[] sinW;
+    private final double[] cos2W;
+    private final double[] sin2W;
+    
+    // پاسخ مختلط هر باند در هر فرکانس (وابسته فقط به ضرایب)
+    private final float[][] bandRe;
+    private final float[][] bandIm;
+    private FilterBank bandResponseSource;
+    
+    // نتیجه‌ی آخرین محاسبه
+    private final float[] magnitudeDb;
+    private final float[] phase;
+    private FrequencyGainSettings cachedGains;
+    private int cachedVersion = -1;
+    private float cachedVolume = Float.NaN;
+    
+    /**
+     * @param sampleRate نرخ نمونه‌برداری
+     * @param numPoints تعداد نقاط (با فاصله لگاریتمی)
+     * @param minHz کمترین فرکانس
+     * @param maxHz بیشترین فرکانس (حداکثر نصف نرخ نمونه‌برداری)
+     */
+    public FrequencyResponse(int sampleRate, int numPoints, float minHz, float maxHz) {
+        if (numPoints < 2 || minHz <= 0 || maxHz <= minHz || maxHz > sampleRate / 2.0f) {
+            throw new IllegalArgumentException("محدوده فرکانسی نامعتبر است");
+        }
+        frequencies = new float[numPoints];
+        cosW = new double[numPoints];
+        sinW = new double[numPoints];
+        cos2W = new double[numPoints];
+        sin2W = new double[numPoints];
+        magnitudeDb = new float[numPoints];
+        phase = new float[numPoints];
+        bandRe = new float[BANDS.length][numPoints];
+        bandIm = new float[BANDS.length][numPoints];
+        
+        double logMin = Math.log(minHz);
+        double logStep = (Math.log(maxHz) - logMin) / (numPoints - 1);
+        for (int i = 0; i < numPoints; i++) {
+            double f = Math.exp(logMin + i * logStep);
+            double w = 2.0 * Math.PI * f / sampleRate;
+            frequencies[i] = (float) f;
+            cosW[i] = Math.cos(w);
+            sinW[i] = Math.sin(w);
+            cos2W[i] = Math.cos(2.0 * w);
+            sin2W[i] = Math.sin(2.0 * w);
+        }
+    }
+    
+    /**
+     * محاسبه (یا بازگرداندن نتیجه‌ی ذخیره شده‌ی) پاسخ زنجیره
+     * آرایه‌های خروجی (getMagnitudeDb و getPhase) متعلق به این شیء هستند و در محاسبه‌ی بعدی بازنویسی می‌شوند
+     * @return true اگر محاسبه انجام شد، false اگر نتیجه‌ی قبلی هنوز معتبر بود
+     */
+    public synchronized boolean compute(FilterBank filterBank, FrequencyGainSettings gains, float masterVolume) {
+        boolean bandsChanged = filterBank != bandResponseSource;
+        if (!bandsChanged && gains == cachedGains && gains.getVersion() == cachedVersion
+                && masterVolume == cachedVolume) {
+            return false;
+        }
+        if (bandsChanged) {
+            computeBandResponses(filterBank);
+        }
+        
+        // نسخه قبل از خواندن تقویت‌ها ثبت می‌شود تا تغییر همزمان در فراخوانی بعدی دیده شود
+        cachedGains = gains;
+        cachedVersion = gains.getVersion();
+        cachedVolume = masterVolume;
+        
+        int numPoints = frequencies.length;
+        for (int i = 0; i < numPoints; i++) {
+            float re = masterVolume;
+            float im = 0.0f;
+            for (FrequencyBand band : BANDS) {
+                float gain = gains.getGain(band);
+                if (Math.abs(gain - 1.0f) > ACTIVE_GAIN_THRESHOLD) {
+                    float br = gain * bandRe[band.ordinal()][i];
+                    float bi = gain * bandIm[band.ordinal()][i];
+                    float nextRe = re * br - im * bi;
+                    im = re * bi + im * br;
+                    re = nextRe;
+                }
+            }
+            float magnitude = (float) Math.sqrt(re * re + im * im);
+            magnitudeDb[i] = 20.0f * (float) Math.log10(Math.max(magnitude, 1e-10f));
+            phase[i] = (float) Math.atan2(im, re);
+        }
+        return true;
+    }
+    
+    /**
+     * H(e^jw) = (b0 + b1 e^-jw + b2 e^-2jw) / (a0 + a1 e^-jw + a2 e^-2jw) برای هر باند
+     */
+    private void computeBandResponses(FilterBank filterBank) {
+        for (FrequencyBand band : BANDS) {
+            IIRFilter filter = filterBank.getFilter(band);
+            double[] b = filter.getNumerator();
+            double[] a = filter.getDenominator();
+            float[] re = bandRe[band.ordinal()];
+            float[] im = bandIm[band.ordinal()];
+            
+            for (int i = 0; i < frequencies.length; i++) {
+                double numRe = b[0] + b[1] * cosW[i] + b[2] * cos2W[i];
+                double numIm = -b[1] * sinW[i] - b[2] * sin2W[i];
+                double denRe = a[0] + a[1] * cosW[i] + a[2] * cos2W[i];
+                double denIm = -a[1] * sinW[i] - a[2] * sin2W[i];
+                double denMag2 = denRe * denRe + denIm * denIm;
+                
+                re[i] = (float) ((numRe * denRe + numIm * denIm) / denMag2);
+                im[i] = (float) ((numIm * denRe - numRe * denIm) / denMag2);
+            }
+        }
+        bandResponseSource = filterBank;
+    }
+    
+    public float[] getFrequencies() {
+        return frequencies;
+    }
+    
+    /**
+     * اندازه‌ی پاسخ بر حسب dB در هر فرکانس
+     */
+    public float[] getMagnitudeDb() {
+        return magnitudeDb;
+    }
+    
+    /**
+     * فاز پاسخ بر حسب رادیان (بین -π و π) در هر فرکانس
+     */
+    public float[] getPhase() {
+        return phase;
+    }
+}
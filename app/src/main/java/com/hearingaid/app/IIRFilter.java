@@ -3,13 +3,41 @@ package com.hearingaid.app;
 /**
  * فیلتر IIR (Infinite Impulse Response) برای پردازش فرکانسی
  * استفاده از فیلتر باند-پس برای تقویت فرکانس‌های خاص
+ *
+ * ساختار: biquad با فرم مستقیم II ترانهاده (دو متغیر حالت)
+ * ضرایب همیشه با دقت double طراحی و نگهداری می‌شوند؛ فیلترهایی که قطب‌هایشان بسیار نزدیک z=1 است
+ * (باندهای پایین) حالت و انباشتگر double دارند و بقیه با float پردازش می‌شوند
+ *
+ * در به‌روزرسانی حالت، y جای‌گذاری شده است (c1 = b1 - a1*b0 و c2 = b2 - a2*b0) تا زنجیره‌ی وابستگی
+ * بین نمونه‌ها فقط یک ضرب و یک تفریق باشد؛ مسیر double تبدیل float/double را در حلقه‌های جدا و
+ * خارج از این زنجیره انجام می‌دهد (IIRFilterBenchmark هزینه را با مسیر تمام float مقایسه می‌کند)
  */
 public class IIRFilter {
-    private float[] a; // ضرایب فیلتر (denominator)
-    private float[] b; // ضرایب فیلتر (numerator)
-    private float[] xHistory; // تاریخچه ورودی
-    private float[] yHistory; // تاریخچه خروجی
-    private int order;
+    // اگر |1 - p|^2 = 1 + a1 + a2 از این مقدار کمتر باشد، دقت float برای حالت فیلتر کافی نیست
+    private static final double DOUBLE_PRECISION_THRESHOLD = 0.01;
+    
+    // آفست DC بسیار کوچک که به ورودی اضافه می‌شود تا حالت فیلتر در سکوت به مقادیر denormal نرسد
+    // (فیلتر باند-پس DC را حذف می‌کند، پس این آفست در خروجی اثری ندارد)
+    private static final float ANTI_DENORMAL_FLOAT = 1e-20f;
+    private static final double ANTI_DENORMAL_DOUBLE = 1e-30;
+    // خروجی double که به float تبدیل می‌شود؛ مقادیر کوچک‌تر از این صفر می‌شوند تا float denormal تولید نشود
+    private static final double FLUSH_TO_ZERO_THRESHOLD = 1e-30;
+    // طول بافر کاری مسیر double؛ بافرهای بلندتر تکه تکه پردازش می‌شوند
+    static final int DOUBLE_CHUNK = 256;
+    // نسخه‌ی روش طراحی (designBandPassFilter)؛ با هر تغییر در آن افزایش یابد تا ضرایب ذخیره شده دوباره طراحی شوند
+    static final int DESIGN_VERSION = 1;
+    
+    // ضرایب نرمال‌شده (a0 = 1)
+    private double b0, b1, b2, a1, a2;
+    // ضرایب به‌روزرسانی حالت پس از جای‌گذاری y
+    private double c1, c2;
+    private float fb0, fc1, fc2, fa1, fa2;
+    private boolean doublePrecision;
+    private double[] work;
+    
+    // حالت فیلتر
+    private double dz1, dz2;
+    private float fz1, fz2;
     
     /**
      * ساخت فیلتر باند-پس
@@ -19,79 +47,155 @@ public class IIRFilter {
      * @param q فاکتور کیفیت
      */
     public IIRFilter(int sampleRate, float centerFreq, float bandwidth, float q) {
-        this.order = 2;
-        this.a = new float[order + 1];
-        this.b = new float[order + 1];
-        this.xHistory = new float[order + 1];
-        this.yHistory = new float[order + 1];
-        
         // محاسبه ضرایب فیلتر باند-پس با استفاده از تبدیل بیلیترال
         designBandPassFilter(sampleRate, centerFreq, bandwidth, q);
     }
     
+    /**
+     * ساخت فیلتر از ضرایب از پیش محاسبه شده (بدون طراحی مجدد)
+     * @param b ضرایب صورت (b0, b1, b2)
+     * @param a ضرایب مخرج (a0, a1, a2)
+     */
+    public IIRFilter(double[] b, double[] a) {
+        setCoefficients(b[0], b[1], b[2], a[0], a[1], a[2]);
+    }
+    
     /**
      * طراحی فیلتر باند-پس
      */
     private void designBandPassFilter(int sampleRate, float centerFreq, float bandwidth, float q) {
-        float w0 = 2.0f * (float) Math.PI * centerFreq / sampleRate;
-        float bw = 2.0f * (float) Math.PI * bandwidth / sampleRate;
-        float alpha = (float) Math.sin(w0) * (float) Math.sinh((float) Math.log(2.0) / 2.0 * q * w0 / (float) Math.sin(w0));
-        
-        float cosw0 = (float) Math.cos(w0);
-        float a0 = 1.0f + alpha;
+        double w0 = 2.0 * Math.PI * centerFreq / sampleRate;
+        double alpha = Math.sin(w0) * Math.sinh(Math.log(2.0) / 2.0 * q * w0 / Math.sin(w0));
+        double cosw0 = Math.cos(w0);
         
         // ضرایب فیلتر
-        b[0] = alpha / a0;
-        b[1] = 0.0f;
-        b[2] = -alpha / a0;
+        setCoefficients(alpha, 0.0, -alpha, 1.0 + alpha, -2.0 * cosw0, 1.0 - alpha);
+    }
+    
+    private void setCoefficients(double nb0, double nb1, double nb2, double na0, double na1, double na2) {
+        b0 = nb0 / na0;
+        b1 = nb1 / na0;
+        b2 = nb2 / na0;
+        a1 = na1 / na0;
+        a2 = na2 / na0;
         
-        a[0] = 1.0f;
-        a[1] = -2.0f * cosw0 / a0;
-        a[2] = (1.0f - alpha) / a0;
+        c1 = b1 - a1 * b0;
+        c2 = b2 - a2 * b0;
+        
+        fb0 = (float) b0;
+        fc1 = (float) c1;
+        fc2 = (float) c2;
+        fa1 = (float) a1;
+        fa2 = (float) a2;
+        
+        doublePrecision = 1.0 + a1 + a2 < DOUBLE_PRECISION_THRESHOLD;
+        work = doublePrecision ? new double[DOUBLE_CHUNK] : null;
+        reset();
     }
     
     /**
      * پردازش نمونه‌ها با اعمال تقویت
      */
     public void process(float[] samples, float gain) {
-        for (int i = 0; i < samples.length; i++) {
-            samples[i] = filterSample(samples[i]) * gain;
+        process(samples, samples.length, gain);
+    }
+    
+    /**
+     * پردازش length نمونه‌ی اول بافر با اعمال تقویت
+     */
+    public void process(float[] samples, int length, float gain) {
+        if (doublePrecision) {
+            processDouble(samples, length, gain);
+        } else {
+            processFloat(samples, length, gain);
+        }
+    }
+    
+    private void processFloat(float[] samples, int length, float gain) {
+        float z1 = fz1;
+        float z2 = fz2;
+        for (int i = 0; i < length; i++) {
+            float x = samples[i] + ANTI_DENORMAL_FLOAT;
+            float y = fb0 * x + z1;
+            float next = (fc1 * x + z2) - fa1 * z1;
+            z2 = fc2 * x - fa2 * z1;
+            z1 = next;
+            samples[i] = y * gain;
+        }
+        fz1 = z1;
+        fz2 = z2;
+    }
+    
+    private void processDouble(float[] samples, int length, float gain) {
+        double[] w = work;
+        for (int offset = 0; offset < length; offset += DOUBLE_CHUNK) {
+            int n = Math.min(DOUBLE_CHUNK, length - offset);
+            toDouble(samples, offset, w, n);
+            process(w, n, gain);
+            toFloat(w, samples, offset, n);
         }
     }
     
     /**
-     * فیلتر کردن یک نمونه
+     * پردازش با حالت double روی بافر double، بدون تبدیل
+     * FilterBank باندهای double را پشت سر هم روی یک بافر مشترک اجرا می‌کند تا تبدیل فقط یک بار انجام شود
      */
-    private float filterSample(float input) {
-        // جابجایی تاریخچه
-        for (int i = order; i > 0; i--) {
-            xHistory[i] = xHistory[i - 1];
-            yHistory[i] = yHistory[i - 1];
+    void process(double[] samples, int length, double gain) {
+        double z1 = dz1;
+        double z2 = dz2;
+        for (int i = 0; i < length; i++) {
+            double x = samples[i] + ANTI_DENORMAL_DOUBLE;
+            double y = b0 * x + z1;
+            double next = (c1 * x + z2) - a1 * z1;
+            z2 = c2 * x - a2 * z1;
+            z1 = next;
+            samples[i] = y * gain;
         }
-        xHistory[0] = input;
-        
-        // محاسبه خروجی
-        float output = 0.0f;
-        for (int i = 0; i <= order; i++) {
-            output += b[i] * xHistory[i];
+        dz1 = z1;
+        dz2 = z2;
+    }
+    
+    static void toDouble(float[] source, int offset, double[] target, int length) {
+        for (int i = 0; i < length; i++) {
+            target[i] = source[offset + i];
         }
-        for (int i = 1; i <= order; i++) {
-            output -= a[i] * yHistory[i];
+    }
+    
+    static void toFloat(double[] source, float[] target, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            double output = source[i];
+            target[offset + i] = Math.abs(output) < FLUSH_TO_ZERO_THRESHOLD ? 0.0f : (float) output;
         }
-        output /= a[0];
-        
-        yHistory[0] = output;
-        return output;
+    }
+    
+    /**
+     * آیا این فیلتر با حالت و انباشتگر double پردازش می‌شود
+     */
+    public boolean isDoublePrecision() {
+        return doublePrecision;
+    }
+    
+    /**
+     * دریافت ضرایب صورت (b0, b1, b2)
+     */
+    public double[] getNumerator() {
+        return new double[]{b0, b1, b2};
+    }
+    
+    /**
+     * دریافت ضرایب مخرج (a0, a1, a2)
+     */
+    public double[] getDenominator() {
+        return new double[]{1.0, a1, a2};
     }
     
     /**
      * ریست فیلتر
      */
     public void reset() {
-        for (int i = 0; i <= order; i++) {
-            xHistory[i] = 0.0f;
-            yHistory[i] = 0.0f;
-        }
+        dz1 = 0.0;
+        dz2 = 0.0;
+        fz1 = 0.0f;
+        fz2 = 0.0f;
     }
 }
-
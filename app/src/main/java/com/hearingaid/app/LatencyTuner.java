@@ -0,0 +1,134 @@
+package com.hearingaid.app;
+
+/**
+ * تعیین اندازه بافرها بر اساس burst بومی دستگاه برای کمترین تأخیر میکروفون تا گوش
+ * خواندن/نوشتن به اندازه‌ی یک burst انجام می‌شود و بافر AudioTrack از چند burst شروع شده
+ * و فقط هنگام underrun (هر بار یک burst) بزرگ‌تر می‌شود
+ */
+public class LatencyTuner {
+    // اگر دستگاه burst را گزارش نکند (حدود 4 میلی‌ثانیه در 48 کیلوهرتز)
+    public static final int DEFAULT_FRAMES_PER_BURST = 192;
+    private static final int MIN_FRAMES_PER_BURST = 16;
+    private static final int MAX_FRAMES_PER_BURST = 4096;
+    
+    private static final int READ_BURSTS = 1;
+    private static final int RECORD_BUFFER_BURSTS = 4;
+    private static final int INITIAL_TRACK_BURSTS = 2;
+    private static final int MAX_TRACK_BURSTS = 8;
+    
+    private static final int BYTES_PER_MONO_FRAME = 2;
+    private static final int BYTES_PER_STEREO_FRAME = 4;
+    
+    private final int sampleRate;
+    private final int framesPerBurst;
+    private final int readFrames;
+    private final int recordBufferBytes;
+    private final int trackCapacityFrames;
+    
+    private int trackBufferFrames;
+    private int lastUnderrunCount;
+    private int underrunGrowths;
+    
+    public LatencyTuner(AudioDeviceProfile device) {
+        this.sampleRate = device.getNativeSampleRate();
+        
+        int burst = device.getFramesPerBurst();
+        if (burst <= 0) {
+            burst = DEFAULT_FRAMES_PER_BURST;
+        }
+        this.framesPerBurst = Math.max(MIN_FRAMES_PER_BURST, Math.min(MAX_FRAMES_PER_BURST, burst));
+        this.readFrames = framesPerBurst * READ_BURSTS;
+        
+        // بافر ضبط باید حداقل به اندازه‌ی حداقل دستگاه باشد؛ خواندن به اندازه‌ی یک burst تأخیر را تعیین می‌کند
+        this.recordBufferBytes = Math.max(device.getMinRecordBufferBytes(sampleRate),
+                RECORD_BUFFER_BURSTS * framesPerBurst * BYTES_PER_MONO_FRAME);
+        
+        // ظرفیت AudioTrack (مضربی از burst) برای رشد بعدی بافر
+        int minTrackFrames = roundUpToBurst(device.getMinTrackBufferBytes(sampleRate) / BYTES_PER_STEREO_FRAME);
+        this.trackCapacityFrames = Math.max(minTrackFrames, MAX_TRACK_BURSTS * framesPerBurst);
+        this.trackBufferFrames = Math.min(trackCapacityFrames, INITIAL_TRACK_BURSTS * framesPerBurst);
+    }
+    
+    private int roundUpToBurst(int frames) {
+        return (frames + framesPerBurst - 1) / framesPerBurst * framesPerBurst;
+    }
+    
+    /**
+     * بررسی شمارنده‌ی underrun دستگاه؛ در صورت underrun جدید، بافر یک burst بزرگ‌تر می‌شود
+     * @param underrunCount مقدار فعلی AudioTrack.getUnderrunCount()
+     * @return true اگر اندازه‌ی بافر تغییر کرد و باید به AudioTrack اعمال شود
+     */
+    public boolean onUnderrunCount(int underrunCount) {
+        if (underrunCount <= lastUnderrunCount) {
+            return false;
+        }
+        lastUnderrunCount = underrunCount;
+        if (trackBufferFrames + framesPerBurst > trackCapacityFrames) {
+            return false;
+        }
+        trackBufferFrames += framesPerBurst;
+        underrunGrowths++;
+        return true;
+    }
+    
+    /**
+     * ثبت اندازه‌ی واقعی اعمال شده توسط AudioTrack (ممکن است دستگاه آن را محدود کند)
+     */
+    public void setActualTrackBufferFrames(int frames) {
+        if (frames > 0) {
+            trackBufferFrames = frames;
+        }
+    }
+    
+    /**
+     * ریست وضعیت underrun برای یک AudioTrack جدید
+     */
+    public void resetUnderrunCount() {
+        lastUnderrunCount = 0;
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public int getFramesPerBurst() {
+        return framesPerBurst;
+    }
+    
+    /**
+     * تعداد فریم‌های هر read از AudioRecord و هر write به AudioTrack
+     */
+    public int getReadFrames() {
+        return readFrames;
+    }
+    
+    public int getRecordBufferBytes() {
+        return recordBufferBytes;
+    }
+    
+    public int getTrackCapacityFrames() {
+        return trackCapacityFrames;
+    }
+    
+    public int getTrackCapacityBytes() {
+        return trackCapacityFrames * BYTES_PER_STEREO_FRAME;
+    }
+    
+    /**
+     * اندازه‌ی هدف بافر AudioTrack (فریم)
+     */
+    public int getTrackBufferFrames() {
+        return trackBufferFrames;
+    }
+    
+    public int getUnderrunGrowths() {
+        return underrunGrowths;
+    }
+    
+    /**
+     * تخمین تأخیر نرم‌افزاری (بلوک خواندن + بافر پخش)، بدون تأخیر سخت‌افزاری مبدل‌ها
+     */
+    public float getEstimatedLatencyMs() {
+        return (readFrames + trackBufferFrames) * 1000.0f / sampleRate;
+    }
+}
@@ -3,12 +3,15 @@ package com.hearingaid.app;
 import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.Button;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
@@ -17,25 +20,53 @@ import androidx.viewpager2.widget.ViewPager2;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
 
+import java.io.File;
+
 public class MainActivity extends AppCompatActivity {
     private static final int PERMISSION_REQUEST_CODE = 100;
+    private static final String FITTING_FILE_NAME = "fitting.bin";
+    private static final String DIAGNOSTICS_DIR_NAME = "diagnostics";
+    // فاصله‌ی بررسی پایان نوشتن فایل‌های ضبط تشخیصی
+    private static final long DIAGNOSTICS_POLL_MS = 100;
+    
+    // زمان‌بندی ارائه‌ی تن در آزمون شنوایی
+    private static final long TONE_DURATION_MS = 1500;
+    private static final long TONE_GAP_MS = 700;
     
     private AudioProcessor audioProcessor;
+    private FittingStore fittingStore;
     private Button btnStartStop;
+    private Button btnHearingTest;
     private SeekBar seekBarNoiseReduction;
     private SeekBar seekBarMasterVolume;
+    private SeekBar seekBarTransientSuppression;
     private TextView tvNoiseReduction;
     private TextView tvMasterVolume;
+    private TextView tvTransientSuppression;
     
     private FrequencyControlFragment leftEarFragment;
     private FrequencyControlFragment rightEarFragment;
     
+    // آزمون شنوایی
+    private AudiometryEngine audiometryEngine;
+    private AlertDialog audiometryDialog;
+    private final Handler toneHandler = new Handler(Looper.getMainLooper());
+    private final Runnable stopToneRunnable = () -> audioProcessor.stopTestTone();
+    
+    private final Handler diagnosticsHandler = new Handler(Looper.getMainLooper());
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         
-        audioProcessor = new AudioProcessor();
+        audioProcessor = new AudioProcessor(new AndroidAudioDeviceProfile(this));
+        
+        // بارگذاری تنظیمات ذخیره شده (تقویت‌ها، کاهش نویز، صدا، کاهش ضربه و ضرایب فیلتر)
+        fittingStore = new FittingStore(new File(getFilesDir(), FITTING_FILE_NAME));
+        fittingStore.load(audioProcessor);
+        
+        audiometryEngine = new AudiometryEngine();
         
         initializeViews();
         setupTabs();
@@ -44,16 +75,26 @@ public class MainActivity extends AppCompatActivity {
     
     private void initializeViews() {
         btnStartStop = findViewById(R.id.btnStartStop);
+        btnHearingTest = findViewById(R.id.btnHearingTest);
         seekBarNoiseReduction = findViewById(R.id.seekBarNoiseReduction);
         seekBarMasterVolume = findViewById(R.id.seekBarMasterVolume);
         tvNoiseReduction = findViewById(R.id.tvNoiseReduction);
         tvMasterVolume = findViewById(R.id.tvMasterVolume);
+        seekBarTransientSuppression = findViewById(R.id.seekBarTransientSuppression);
+        tvTransientSuppression = findViewById(R.id.tvTransientSuppression);
         
         btnStartStop.setOnClickListener(v -> toggleProcessing());
+        btnStartStop.setOnLongClickListener(v -> {
+            toggleDiagnosticRecording();
+            return true;
+        });
+        btnHearingTest.setOnClickListener(v -> startHearingTest());
         
         // تنظیم SeekBar کاهش نویز
         seekBarNoiseReduction.setMax(100);
-        seekBarNoiseReduction.setProgress(50);
+        int noiseReductionProgress = Math.round(audioProcessor.getNoiseReductionLevel() * 100);
+        seekBarNoiseReduction.setProgress(noiseReductionProgress);
+        tvNoiseReduction.setText(String.format("کاهش نویز: %d%%", noiseReductionProgress));
         seekBarNoiseReduction.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
@@ -71,7 +112,9 @@ public class MainActivity extends AppCompatActivity {
         
         // تنظیم SeekBar صدا
         seekBarMasterVolume.setMax(200);
-        seekBarMasterVolume.setProgress(100);
+        int masterVolumeProgress = Math.round(audioProcessor.getMasterVolume() * 100);
+        seekBarMasterVolume.setProgress(masterVolumeProgress);
+        tvMasterVolume.setText(String.format("صدا: %d%%", masterVolumeProgress));
         seekBarMasterVolume.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
@@ -86,6 +129,25 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onStopTrackingTouch(SeekBar seekBar) {}
         });
+        
+        // تنظیم SeekBar کاهش صداهای ضربه‌ای (صفر = خاموش، 100% = حداکثر 30 dB کاهش)
+        seekBarTransientSuppression.setMax(100);
+        int transientProgress = Math.round(audioProcessor.getTransientSuppression() * 100);
+        seekBarTransientSuppression.setProgress(transientProgress);
+        tvTransientSuppression.setText(String.format("کاهش صداهای ضربه‌ای: %d%%", transientProgress));
+        seekBarTransientSuppression.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                audioProcessor.setTransientSuppression(progress / 100.0f);
+                tvTransientSuppression.setText(String.format("کاهش صداهای ضربه‌ای: %d%%", progress));
+            }
+            
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+            
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
     }
     
     private void setupTabs() {
@@ -126,6 +188,169 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    /**
+     * شروع/توقف ضبط تشخیصی (با نگه داشتن دکمه شروع)
+     */
+    private void toggleDiagnosticRecording() {
+        if (audioProcessor.isDiagnosticRecording()) {
+            DiagnosticRecorder recorder = audioProcessor.stopDiagnosticRecording();
+            reportDiagnosticRecording(recorder, "ضبط تشخیصی ذخیره شد (%d بلوک از دست رفته)");
+        } else {
+            // ضبط قبلی ممکن است با رسیدن به سقف زمان یا حجم خودکار پایان یافته باشد
+            DiagnosticRecorder finished = audioProcessor.stopDiagnosticRecording();
+            if (finished != null) {
+                reportDiagnosticRecording(finished,
+                        "ضبط تشخیصی با رسیدن به سقف زمان یا حجم پایان یافته بود (%d بلوک از دست رفته)");
+                return;
+            }
+            File directory = new File(getFilesDir(), DIAGNOSTICS_DIR_NAME);
+            if ((directory.isDirectory() || directory.mkdirs())
+                    && audioProcessor.startDiagnosticRecording(directory)) {
+                Toast.makeText(this, "ضبط تشخیصی شروع شد", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+    
+    /**
+     * نمایش نتیجه‌ی ضبط پس از خروج نخ نویسنده؛ نخ رابط کاربری منتظر نوشتن فایل‌ها نمی‌ماند
+     * @param message متن با جای تعداد بلوک‌های از دست رفته
+     */
+    private void reportDiagnosticRecording(DiagnosticRecorder recorder, String message) {
+        if (!recorder.isFinished()) {
+            diagnosticsHandler.postDelayed(() -> reportDiagnosticRecording(recorder, message), DIAGNOSTICS_POLL_MS);
+            return;
+        }
+        Toast.makeText(this, String.format(message, recorder.getDroppedBlocks()), Toast.LENGTH_LONG).show();
+    }
+    
+    /**
+     * شروع آزمون شنوایی تن خالص؛ در پایان، اگر هدفون واسنجی شده باشد، تقویت هر دو گوش با قاعده‌ی NAL-R
+     * تنظیم می‌شود
+     */
+    private void startHearingTest() {
+        if (!audioProcessor.isProcessing()) {
+            toggleProcessing();
+            if (!audioProcessor.isProcessing()) {
+                return;
+            }
+        }
+        
+        // از این پس تا پایان آزمون فقط تن (یا سکوت) پخش می‌شود، نه صدای محیط
+        audioProcessor.setHearingTestMode(true);
+        audiometryEngine.start();
+        audiometryDialog = new AlertDialog.Builder(this)
+                .setTitle(R.string.hearing_test)
+                .setMessage(R.string.hearing_test_instructions)
+                .setPositiveButton(R.string.heard, null)
+                .setNegativeButton(R.string.not_heard, null)
+                .setNeutralButton(R.string.cancel, (dialog, which) -> stopHearingTest())
+                .setCancelable(false)
+                .create();
+        audiometryDialog.show();
+        
+        // دکمه‌های پاسخ نباید پنجره را ببندند
+        audiometryDialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(v -> onHearingResponse(true));
+        audiometryDialog.getButton(AlertDialog.BUTTON_NEGATIVE).setOnClickListener(v -> onHearingResponse(false));
+        presentTone();
+    }
+    
+    private void presentTone() {
+        if (audiometryDialog == null) {
+            return;
+        }
+        FrequencyBand band = audiometryEngine.getCurrentBand();
+        String ear = getString(audiometryEngine.isLeftEar() ? R.string.left_ear : R.string.right_ear);
+        audiometryDialog.setMessage(String.format("%s\n\n%s - %d Hz - %.0f dB HL",
+                getString(R.string.hearing_test_instructions), ear,
+                (int) band.getCenterFrequency(), audiometryEngine.getCurrentLevelDb()));
+        
+        audioProcessor.startTestTone(audiometryEngine.isLeftEar(), band.getCenterFrequency(),
+                audiometryEngine.getToneAmplitude());
+        toneHandler.postDelayed(stopToneRunnable, TONE_DURATION_MS);
+    }
+    
+    private void onHearingResponse(boolean heard) {
+        toneHandler.removeCallbacksAndMessages(null);
+        audioProcessor.stopTestTone();
+        if (audiometryEngine.onResponse(heard)) {
+            toneHandler.postDelayed(this::presentTone, TONE_GAP_MS);
+        } else {
+            finishHearingTest();
+        }
+    }
+    
+    /**
+     * پایان آزمون: نمایش آستانه‌ها و گرفتن تأیید پیش از جایگزینی تقویت‌های فعلی هر دو گوش. بدون واسنجی
+     * هدفون آستانه‌ها فقط نمایش داده می‌شوند و اعمال تجویز پیشنهاد نمی‌شود
+     */
+    private void finishHearingTest() {
+        audioProcessor.setHearingTestMode(false);
+        if (audiometryDialog != null) {
+            audiometryDialog.dismiss();
+            audiometryDialog = null;
+        }
+        
+        if (!audiometryEngine.isCalibrated()) {
+            StringBuilder message = new StringBuilder(getString(R.string.uncalibrated_warning));
+            appendThresholds(message, true);
+            appendThresholds(message, false);
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.hearing_test)
+                    .setMessage(message)
+                    .setPositiveButton(R.string.close, null)
+                    .show();
+            return;
+        }
+        
+        StringBuilder message = new StringBuilder(getString(R.string.apply_prescription_message));
+        appendThresholds(message, true);
+        appendThresholds(message, false);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.apply_prescription)
+                .setMessage(message)
+                .setPositiveButton(R.string.apply, (dialog, which) -> applyPrescription())
+                .setNegativeButton(R.string.cancel, (dialog, which) ->
+                        Toast.makeText(this, "تقویت‌های قبلی حفظ شد", Toast.LENGTH_SHORT).show())
+                .setCancelable(false)
+                .show();
+    }
+    
+    private void appendThresholds(StringBuilder message, boolean isLeftEar) {
+        Audiogram audiogram = audiometryEngine.getAudiogram(isLeftEar);
+        message.append("\n\n").append(getString(isLeftEar ? R.string.left_ear : R.string.right_ear)).append(":");
+        for (FrequencyBand band : FrequencyBand.values()) {
+            if (audiogram.hasThreshold(band)) {
+                // شنیدن در کمترین سطح قابل پخش: آستانه‌ی واقعی ممکن است پایین‌تر باشد
+                float threshold = audiogram.getThreshold(band);
+                String bound = threshold <= audiometryEngine.getMinLevelDb(band) ? "≤ " : "";
+                message.append(String.format("\n%d Hz: %s%.0f dB HL",
+                        (int) band.getCenterFrequency(), bound, threshold));
+            }
+        }
+    }
+    
+    private void applyPrescription() {
+        if (!audiometryEngine.applyPrescription(PrescriptionRule.NAL_R,
+                audioProcessor.getLeftEarGains(), audioProcessor.getRightEarGains())) {
+            Toast.makeText(this, "هدفون واسنجی نشده است؛ تقویت‌ها تغییر نکرد", Toast.LENGTH_LONG).show();
+            return;
+        }
+        leftEarFragment.refreshGains();
+        rightEarFragment.refreshGains();
+        Toast.makeText(this, "تقویت‌ها از روی نتیجه آزمون شنوایی تنظیم شد", Toast.LENGTH_LONG).show();
+    }
+    
+    private void stopHearingTest() {
+        toneHandler.removeCallbacksAndMessages(null);
+        audioProcessor.stopTestTone();
+        audioProcessor.setHearingTestMode(false);
+        audiometryEngine.cancel();
+        if (audiometryDialog != null) {
+            audiometryDialog.dismiss();
+            audiometryDialog = null;
+        }
+    }
+    
     private boolean checkPermissions() {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
                 != PackageManager.PERMISSION_GRANTED) {
@@ -149,12 +374,23 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (fittingStore != null) {
+            fittingStore.save(audioProcessor);
+        }
+    }
+    
     @Override
     protected void onDestroy() {
         super.onDestroy();
         if (audioProcessor != null) {
+            stopHearingTest();
             audioProcessor.stop();
+            audioProcessor.stopDiagnosticRecording();
         }
+        diagnosticsHandler.removeCallbacksAndMessages(null);
     }
 }
 
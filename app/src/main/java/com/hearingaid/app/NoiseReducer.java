@@ -16,11 +16,12 @@ public class NoiseReducer {
     }
     
     /**
-     * کاهش نویز در سیگنال
+     * کاهش نویز در length نمونه‌ی اول بافر (درجا)
      * @param samples نمونه‌های صوتی
+     * @param length تعداد نمونه‌های معتبر؛ بقیه‌ی بافر دست نمی‌خورد
      * @param strength قدرت کاهش نویز (0.0 تا 1.0)
      */
-    public void reduceNoise(float[] samples, float strength) {
+    public void reduceNoise(float[] samples, int length, float strength) {
         if (strength <= 0.0f) {
             return;
         }
@@ -29,22 +30,22 @@ public class NoiseReducer {
         // در حالت واقعی، از الگوریتم‌های پیشرفته‌تر مانند Spectral Subtraction استفاده می‌شود
         
         // تخمین نویز (فرض می‌کنیم نویز در فرکانس‌های بالا بیشتر است)
-        float noiseEstimate = estimateNoise(samples);
+        float noiseEstimate = estimateNoise(samples, length);
         
         // اعمال فیلتر کاهش نویز
-        applyNoiseReduction(samples, noiseEstimate, strength);
+        applyNoiseReduction(samples, length, noiseEstimate, strength);
     }
     
     /**
      * تخمین سطح نویز
      */
-    private float estimateNoise(float[] samples) {
+    private float estimateNoise(float[] samples, int length) {
         // محاسبه انرژی در فرکانس‌های بالا (که معمولاً نویز بیشتری دارند)
         float highFreqEnergy = 0.0f;
         int count = 0;
         
         // استفاده از تفاضل برای تشخیص تغییرات سریع (نویز)
-        for (int i = 1; i < samples.length; i++) {
+        for (int i = 1; i < length; i++) {
             float diff = Math.abs(samples[i] - samples[i - 1]);
             if (diff > 0.01f) { // تغییرات سریع
                 highFreqEnergy += diff;
@@ -58,11 +59,11 @@ public class NoiseReducer {
     /**
      * اعمال کاهش نویز با استفاده از فیلتر
      */
-    private void applyNoiseReduction(float[] samples, float noiseEstimate, float strength) {
+    private void applyNoiseReduction(float[] samples, int length, float noiseEstimate, float strength) {
         // فیلتر ساده: کاهش تغییرات سریع (نویز) و حفظ تغییرات آهسته (صدا)
         float smoothingFactor = 0.3f * strength;
         
-        for (int i = 1; i < samples.length; i++) {
+        for (int i = 1; i < length; i++) {
             float diff = samples[i] - samples[i - 1];
             float absDiff = Math.abs(diff);
             
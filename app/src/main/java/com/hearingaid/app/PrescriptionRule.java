@@ -0,0 +1,75 @@
+package com.hearingaid.app;
+
+/**
+ * قاعده‌ی تجویز تقویت از روی آستانه‌های شنوایی
+ */
+public enum PrescriptionRule {
+    /**
+     * نصف افت شنوایی در هر فرکانس
+     */
+    HALF_GAIN {
+        @Override
+        public float computeGainDb(Audiogram audiogram, FrequencyBand band) {
+            return audiogram.getThreshold(band) * 0.5f;
+        }
+    },
+    
+    /**
+     * NAL-R: G = 0.15 × میانگین (500، 1000، 2000) + 0.31 × H + k(f)
+     */
+    NAL_R {
+        @Override
+        public float computeGainDb(Audiogram audiogram, FrequencyBand band) {
+            float average = audiogram.getAverage(FrequencyBand.MID_500, FrequencyBand.MID_1000, FrequencyBand.MID_2000);
+            float x = Float.isNaN(average) ? 0.0f : 0.15f * average;
+            return x + 0.31f * audiogram.getThreshold(band) + nalCorrection(band);
+        }
+    };
+    
+    // محدوده‌ی تقویت قابل تنظیم در رابط کاربری
+    public static final float MIN_GAIN_DB = 0.0f;
+    public static final float MAX_GAIN_DB = 20.0f;
+    
+    /**
+     * تقویت تجویز شده برای یک باند (بدون محدود کردن؛ آستانه‌ی باند باید اندازه‌گیری شده باشد)
+     */
+    public abstract float computeGainDb(Audiogram audiogram, FrequencyBand band);
+    
+    /**
+     * اعمال تقویت تجویز شده به تنظیمات یک گوش؛ باندهای اندازه‌گیری نشده تغییر نمی‌کنند
+     * @return تعداد باندهای تنظیم شده
+     */
+    public int apply(Audiogram audiogram, FrequencyGainSettings gains) {
+        int applied = 0;
+        for (FrequencyBand band : FrequencyBand.values()) {
+            if (!audiogram.hasThreshold(band)) {
+                continue;
+            }
+            float gainDb = computeGainDb(audiogram, band);
+            gains.setGain(band, Math.max(MIN_GAIN_DB, Math.min(MAX_GAIN_DB, gainDb)));
+            applied++;
+        }
+        return applied;
+    }
+    
+    /**
+     * ضریب تصحیح فرکانسی NAL-R (125 هرتز مانند 250 و 8000 مانند 6000 در نظر گرفته می‌شود)
+     */
+    private static float nalCorrection(FrequencyBand band) {
+        switch (band) {
+            case LOW_125:
+            case LOW_250:
+                return -17.0f;
+            case MID_500:
+                return -8.0f;
+            case MID_1000:
+                return 1.0f;
+            case MID_2000:
+                return -1.0f;
+            case HIGH_4000:
+            case HIGH_8000:
+            default:
+                return -2.0f;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.hearingaid.app;
+
+/**
+ * تولید تن خالص برای آزمون شنوایی
+ *
+ * نوسان‌ساز بازگشتی چرخشی (یک بردار دوبعدی در هر نمونه با زاویه‌ی ثابت چرخانده می‌شود): تغییر فرکانس
+ * فقط زاویه‌ی چرخش را عوض می‌کند و فاز پیوسته می‌ماند. روشن و خاموش شدن با شیب کسینوسی (جدول از پیش
+ * محاسبه شده) انجام می‌شود تا کلیک شنیده نشود. تنظیمات از نخ رابط کاربری و تولید نمونه‌ها در نخ صوتی
+ * بدون تخصیص انجام می‌شود
+ */
+public class PureToneOscillator {
+    private static final float RAMP_MS = 25.0f;
+    // هموارسازی تغییر دامنه در حین پخش
+    private static final float AMPLITUDE_SMOOTHING_MS = 10.0f;
+    
+    private final int sampleRate;
+    private final float[] rampTable;
+    private final float amplitudeSmoothing;
+    
+    // پارامترهای درخواستی (نخ رابط کاربری)
+    private volatile float requestedFrequency = 1000.0f;
+    private volatile float requestedAmplitude = 0.0f;
+    private volatile boolean toneOn = false;
+    
+    // حالت نوسان‌ساز (نخ صوتی)
+    private double stateCos = 1.0;
+    private double stateSin = 0.0;
+    private double rotationCos = 1.0;
+    private double rotationSin = 0.0;
+    private float currentFrequency = Float.NaN;
+    private float currentAmplitude = 0.0f;
+    private int rampPosition = 0;
+    
+    public PureToneOscillator(int sampleRate) {
+        this.sampleRate = sampleRate;
+        int rampLength = Math.max(1, Math.round(RAMP_MS * sampleRate / 1000.0f));
+        rampTable = new float[rampLength + 1];
+        for (int i = 0; i <= rampLength; i++) {
+            rampTable[i] = (float) (0.5 - 0.5 * Math.cos(Math.PI * i / rampLength));
+        }
+        amplitudeSmoothing = (float) Math.exp(-1000.0 / (AMPLITUDE_SMOOTHING_MS * sampleRate));
+    }
+    
+    /**
+     * روشن کردن (یا تغییر) تن
+     * @param frequencyHz فرکانس (کمتر از نصف نرخ نمونه‌برداری)
+     * @param amplitude دامنه‌ی خطی نسبت به تمام‌مقیاس (0 تا 1)
+     */
+    public void start(float frequencyHz, float amplitude) {
+        requestedFrequency = Math.max(1.0f, Math.min(sampleRate * 0.45f, frequencyHz));
+        requestedAmplitude = Math.max(0.0f, Math.min(1.0f, amplitude));
+        toneOn = true;
+    }
+    
+    /**
+     * خاموش کردن تن (با شیب نزولی)
+     */
+    public void stop() {
+        toneOn = false;
+    }
+    
+    /**
+     * آیا تن در حال پخش است (شامل شیب خاموش شدن)
+     */
+    public boolean isActive() {
+        return toneOn || rampPosition > 0;
+    }
+    
+    /**
+     * تولید length نمونه در بافر (نخ صوتی)
+     */
+    public void render(float[] output, int length) {
+        float frequency = requestedFrequency;
+        if (frequency != currentFrequency) {
+            double w = 2.0 * Math.PI * frequency / sampleRate;
+            rotationCos = Math.cos(w);
+            rotationSin = Math.sin(w);
+            currentFrequency = frequency;
+        }
+        if (rampPosition == 0) {
+            // شروع از سکوت: دامنه بدون هموارسازی تنظیم می‌شود (شیب کسینوسی کافی است)
+            currentAmplitude = requestedAmplitude;
+        }
+        
+        float targetAmplitude = requestedAmplitude;
+        int rampStep = toneOn ? 1 : -1;
+        int rampLength = rampTable.length - 1;
+        double c = stateCos;
+        double s = stateSin;
+        float amplitude = currentAmplitude;
+        int ramp = rampPosition;
+        
+        for (int i = 0; i < length; i++) {
+            ramp += rampStep;
+            if (ramp < 0) {
+                ramp = 0;
+            } else if (ramp > rampLength) {
+                ramp = rampLength;
+            }
+            amplitude = amplitude * amplitudeSmoothing + targetAmplitude * (1.0f - amplitudeSmoothing);
+            output[i] = (float) s * amplitude * rampTable[ramp];
+            
+            double nextCos = c * rotationCos - s * rotationSin;
+            s = s * rotationCos + c * rotationSin;
+            c = nextCos;
+        }
+        
+        // اصلاح خطای گرد کردن اندازه‌ی بردار (تقریب مرتبه اول 1/sqrt)
+        double correction = 1.5 - 0.5 * (c * c + s * s);
+        stateCos = c * correction;
+        stateSin = s * correction;
+        currentAmplitude = amplitude;
+        rampPosition = ramp;
+    }
+    
+    /**
+     * ریست حالت (سکوت)
+     */
+    public void reset() {
+        toneOn = false;
+        stateCos = 1.0;
+        stateSin = 0.0;
+        currentAmplitude = 0.0f;
+        rampPosition = 0;
+    }
+}
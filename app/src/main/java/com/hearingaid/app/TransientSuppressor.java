@@ -0,0 +1,245 @@
+package com.hearingaid.app;
+
+import java.util.Arrays;
+
+/**
+ * کاهش صداهای ضربه‌ای ناگهانی (بشقاب، در، صفحه‌کلید) پیش از تقویت فرکانسی
+ *
+ * شروع ضربه با نسبت پوش سریع به پوش کند تشخیص داده می‌شود: گفتار در چند ده میلی‌ثانیه اوج می‌گیرد و
+ * پوش کند آن را دنبال می‌کند، اما ضربه در کمتر از یک میلی‌ثانیه بالا می‌رود. سیگنال به اندازه‌ی
+ * پیش‌نگری (LOOKAHEAD_MS) تأخیر داده می‌شود تا بهره پیش از رسیدن ضربه پایین آمده باشد؛ بهره برای هر
+ * نمونه محاسبه و فقط مازاد ضربه نسبت به سطح پس‌زمینه کم می‌شود. هزینه‌ی هر نمونه ثابت و بدون تخصیص است
+ *
+ * هر صدایی که از سکوت شروع شود در ابتدا شبیه ضربه است. تفاوت در ادامه است: دنباله‌ی ضربه (حتی با
+ * طنین 80 میلی‌ثانیه‌ای) میرا می‌شود، اما صدای پیوسته نه. اگر پوش میرایی در تمام SUSTAIN_WINDOW_MS
+ * آخر SUSTAIN_CHECK_MS نزدیک اوج رویداد مانده باشد صدا پیوسته شناخته می‌شود، مرجع کند آزاد می‌شود و
+ * بهره سریع برمی‌گردد؛ در غیر این صورت کاهش تا پایین آمدن دنباله زیر آستانه ادامه دارد
+ */
+public class TransientSuppressor {
+    private static final float LOOKAHEAD_MS = 1.5f;
+    
+    // پوش سریع: حمله‌ی آنی، رهایی کوتاه
+    private static final float FAST_RELEASE_MS = 2.0f;
+    // پوش کند: حمله و رهایی آهسته (سطح پس‌زمینه / گفتار)
+    private static final float SLOW_ATTACK_MS = 5.0f;
+    private static final float SLOW_RELEASE_MS = 100.0f;
+    // حمله‌ی پوش کند در حین ضربه (تا خود ضربه سطح پس‌زمینه را بالا نبرد؛ صدای پیوسته‌ی بلند در نهایت دنبال می‌شود)
+    private static final float SLOW_TRANSIENT_ATTACK_MS = 200.0f;
+    // بازگشت بهره پس از ضربه
+    private static final float GAIN_RELEASE_MS = 20.0f;
+    // پوش میرایی: حمله‌ی آنی، رهایی کندتر از دوره‌ی صداهای واک‌دار تا موج‌دار نباشد
+    private static final float DECAY_RELEASE_MS = 20.0f;
+    // زمان تصمیم بین ضربه و صدای پیوسته پس از شروع، و پنجره‌ی آخر آن که میرایی در آن سنجیده می‌شود
+    private static final float SUSTAIN_CHECK_MS = 30.0f;
+    private static final float SUSTAIN_WINDOW_MS = 10.0f;
+    // صدای پیوسته در پنجره‌ی سنجش کمتر از حدود 1.5 dB زیر اوج می‌ماند (موج‌دار بودن پوش تا حدود 1 dB)؛
+    // دنباله‌ی ضربه با میرایی 80 میلی‌ثانیه تا آن زمان حدود 2 تا 5 dB افت کرده است
+    private static final float SUSTAIN_LEVEL = 0.84f;
+    // بازگشت سریع بهره وقتی شروعی که ضربه فرض شده بود پیوسته از آب درآمد
+    private static final float SUSTAINED_RELEASE_MS = 2.0f;
+    
+    // نسبت سریع به کند که ضربه محسوب می‌شود (حدود 12 dB)
+    private static final float ONSET_RATIO = 4.0f;
+    // صدای پیوسته تا پایین آمدن این نسبت (حدود 6 dB) دوباره ضربه محسوب نمی‌شود (پسماند)
+    private static final float SUSTAINED_END_RATIO = 2.0f;
+    // ضربه‌های ضعیف‌تر از این سطح (حدود -30 dBFS) دست نمی‌خورند
+    private static final float MIN_TRANSIENT_LEVEL = 0.03f;
+    private static final float MAX_ATTENUATION_DB = 30.0f;
+    private static final float ENVELOPE_FLOOR = 1e-5f;
+    
+    private final int lookaheadSamples;
+    private final float fastRelease;
+    private final float slowAttack;
+    private final float slowRelease;
+    private final float slowTransientAttack;
+    private final float gainAttack;
+    private final float gainRelease;
+    private final float decayRelease;
+    private final int checkSamples;
+    private final int windowStart;
+    private final float sustainedRelease;
+    
+    // خط تأخیر حلقوی پیش‌نگری
+    private final float[] delayLine;
+    private int delayIndex;
+    
+    private float fastEnvelope;
+    private float slowEnvelope;
+    private float decayEnvelope;
+    // اوج پوش میرایی از شروع رویداد فعلی و اینکه در پنجره‌ی سنجش زیر SUSTAIN_LEVEL آن رفته یا نه
+    private float eventPeak;
+    private boolean eventDecayed;
+    private float gain = 1.0f;
+    private boolean transientActive;
+    // تعداد نمونه‌های پیوسته‌ی بالای آستانه و اینکه صدای فعلی پیوسته شناخته شده است
+    private int aboveSamples;
+    private boolean sustained;
+    private boolean fastRecovery;
+    
+    private volatile float depth;
+    private volatile float minGain;
+    private boolean wasEnabled;
+    
+    public TransientSuppressor(int sampleRate) {
+        lookaheadSamples = Math.max(1, Math.round(LOOKAHEAD_MS * sampleRate / 1000.0f));
+        fastRelease = coefficient(FAST_RELEASE_MS, sampleRate);
+        slowAttack = coefficient(SLOW_ATTACK_MS, sampleRate);
+        slowRelease = coefficient(SLOW_RELEASE_MS, sampleRate);
+        slowTransientAttack = coefficient(SLOW_TRANSIENT_ATTACK_MS, sampleRate);
+        // ثابت زمانی یک پنجم پیش‌نگری: بهره تا رسیدن ضربه به خروجی عملاً به هدف رسیده است
+        gainAttack = (float) Math.exp(-5.0 / lookaheadSamples);
+        gainRelease = coefficient(GAIN_RELEASE_MS, sampleRate);
+        decayRelease = coefficient(DECAY_RELEASE_MS, sampleRate);
+        checkSamples = Math.round(SUSTAIN_CHECK_MS * sampleRate / 1000.0f);
+        windowStart = checkSamples - Math.round(SUSTAIN_WINDOW_MS * sampleRate / 1000.0f);
+        sustainedRelease = coefficient(SUSTAINED_RELEASE_MS, sampleRate);
+        delayLine = new float[lookaheadSamples];
+        setDepth(0.0f);
+    }
+    
+    private static float coefficient(float timeMs, int sampleRate) {
+        return (float) Math.exp(-1000.0 / (timeMs * sampleRate));
+    }
+    
+    /**
+     * تنظیم شدت کاهش
+     * @param depth 0.0 = خاموش، 1.0 = حداکثر کاهش (MAX_ATTENUATION_DB)
+     */
+    public void setDepth(float depth) {
+        float clamped = Math.max(0.0f, Math.min(1.0f, depth));
+        minGain = (float) Math.pow(10.0, -MAX_ATTENUATION_DB * clamped / 20.0);
+        this.depth = clamped;
+    }
+    
+    public float getDepth() {
+        return depth;
+    }
+    
+    public boolean isEnabled() {
+        return depth > 0.0f;
+    }
+    
+    /**
+     * تأخیر افزوده شده توسط این مرحله (نمونه)
+     */
+    public int getLatencySamples() {
+        return lookaheadSamples;
+    }
+    
+    /**
+     * پردازش length نمونه‌ی اول بافر (درجا)
+     */
+    public void process(float[] samples, int length) {
+        if (!isEnabled()) {
+            wasEnabled = false;
+            return;
+        }
+        if (!wasEnabled) {
+            // فعال‌سازی مجدد: حالت قدیمی دور ریخته می‌شود
+            reset();
+            wasEnabled = true;
+        }
+        
+        float floorGain = minGain;
+        float fast = fastEnvelope;
+        float slow = slowEnvelope;
+        float decay = decayEnvelope;
+        float peak = eventPeak;
+        boolean decayed = eventDecayed;
+        float g = gain;
+        boolean inTransient = transientActive;
+        int above = aboveSamples;
+        boolean isSustained = sustained;
+        boolean recovering = fastRecovery;
+        int index = delayIndex;
+        
+        for (int i = 0; i < length; i++) {
+            float x = samples[i];
+            float level = Math.abs(x);
+            
+            fast = level > fast ? level : fast * fastRelease + level * (1.0f - fastRelease);
+            float slowCoeff = level <= slow ? slowRelease : (inTransient ? slowTransientAttack : slowAttack);
+            slow = slow * slowCoeff + level * (1.0f - slowCoeff);
+            decay = level > decay ? level : decay * decayRelease + level * (1.0f - decayRelease);
+            
+            // بهره‌ی هدف: پایین آوردن ضربه تا ONSET_RATIO برابر سطح پس‌زمینه
+            float target = 1.0f;
+            float limit = ONSET_RATIO * (slow + ENVELOPE_FLOOR);
+            if (isSustained) {
+                if (fast < SUSTAINED_END_RATIO * (slow + ENVELOPE_FLOOR)) {
+                    isSustained = false;
+                    above = 0;
+                }
+            } else if (fast > limit && fast > MIN_TRANSIENT_LEVEL) {
+                // دنباله‌ی ضربه میرا می‌شود؛ اگر تا SUSTAIN_CHECK_MS نشد صدا پیوسته است و مرجع کند دیگر ثابت نمی‌ماند
+                if (above == 0) {
+                    peak = 0.0f;
+                    decayed = false;
+                }
+                if (above < checkSamples) {
+                    peak = Math.max(peak, decay);
+                    decayed |= above >= windowStart && decay < SUSTAIN_LEVEL * peak;
+                    if (++above == checkSamples && !decayed) {
+                        isSustained = true;
+                    }
+                }
+            } else {
+                above = 0;
+            }
+            inTransient = above > 0 && !isSustained;
+            if (inTransient) {
+                target = Math.max(floorGain, limit / fast);
+                recovering = false;
+            } else if (isSustained) {
+                recovering = true;
+            }
+            float gainCoeff = target < g ? gainAttack : (recovering ? sustainedRelease : gainRelease);
+            g = g * gainCoeff + target * (1.0f - gainCoeff);
+            
+            // خروجی: نمونه‌ی تأخیر یافته با بهره‌ی فعلی
+            float delayed = delayLine[index];
+            delayLine[index] = x;
+            if (++index == lookaheadSamples) {
+                index = 0;
+            }
+            samples[i] = delayed * g;
+        }
+        
+        fastEnvelope = fast < ENVELOPE_FLOOR ? 0.0f : fast;
+        slowEnvelope = slow < ENVELOPE_FLOOR ? 0.0f : slow;
+        decayEnvelope = decay < ENVELOPE_FLOOR ? 0.0f : decay;
+        eventPeak = peak;
+        eventDecayed = decayed;
+        gain = g;
+        transientActive = inTransient;
+        aboveSamples = above;
+        sustained = isSustained;
+        fastRecovery = recovering;
+        delayIndex = index;
+    }
+    
+    /**
+     * بهره‌ی فعلی (برای نمایش میزان کاهش)
+     */
+    public float getCurrentGain() {
+        return gain;
+    }
+    
+    /**
+     * ریست حالت
+     */
+    public void reset() {
+        Arrays.fill(delayLine, 0.0f);
+        delayIndex = 0;
+        fastEnvelope = 0.0f;
+        slowEnvelope = 0.0f;
+        decayEnvelope = 0.0f;
+        eventPeak = 0.0f;
+        eventDecayed = false;
+        gain = 1.0f;
+        transientActive = false;
+        aboveSamples = 0;
+        sustained = false;
+        fastRecovery = false;
+    }
+}
@@ -0,0 +1,180 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AudioProcessorTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final float TONE_HZ = 1000.0f;
+    
+    /**
+     * خروجی پخش شده: بیشینه‌ی هر کانال و دامنه‌ی مؤلفه‌ی TONE_HZ کانال چپ (بر حسب LSB)
+     */
+    private static final class OutputCapture implements SimulatedLoopbackDevice.OutputMonitor {
+        private int maxLeft;
+        private int maxRight;
+        private double sin;
+        private double cos;
+        private long frames;
+        
+        @Override
+        public synchronized void onPlayed(short[] stereo, int frames, long firstFrame, long timeNanos) {
+            double w = 2.0 * Math.PI * TONE_HZ / SAMPLE_RATE;
+            for (int i = 0; i < frames; i++) {
+                int left = stereo[2 * i];
+                maxLeft = Math.max(maxLeft, Math.abs(left));
+                maxRight = Math.max(maxRight, Math.abs(stereo[2 * i + 1]));
+                double phase = w * ((firstFrame + i) % SAMPLE_RATE);
+                sin += left * Math.sin(phase);
+                cos += left * Math.cos(phase);
+            }
+            this.frames += frames;
+        }
+        
+        synchronized void clear() {
+            maxLeft = 0;
+            maxRight = 0;
+            sin = 0.0;
+            cos = 0.0;
+            frames = 0;
+        }
+        
+        synchronized int getMaxLeft() {
+            return maxLeft;
+        }
+        
+        synchronized int getMaxRight() {
+            return maxRight;
+        }
+        
+        synchronized double getToneAmplitude() {
+            return 2.0 * Math.hypot(sin, cos) / frames;
+        }
+    }
+    
+    private static AudioProcessor startLoopback(OutputCapture capture) {
+        // میکروفون: صدای بلند محیط (500 هرتز، حدود -10 dBFS)
+        SimulatedLoopbackDevice device = new SimulatedLoopbackDevice(SAMPLE_RATE, 192, 0.0f, 0.0f, 0.0f, 1, 0.0, 0.0,
+                (buffer, frames, firstFrame, timeNanos) -> {
+                    for (int i = 0; i < frames; i++) {
+                        buffer[i] = (short) (10000.0 * Math.sin(2.0 * Math.PI * 500.0 * (firstFrame + i) / SAMPLE_RATE));
+                    }
+                }, capture);
+        AudioProcessor processor = new AudioProcessor(device);
+        processor.start();
+        assertTrue(processor.isProcessing());
+        return processor;
+    }
+    
+    /**
+     * ورودی/خروجی که شروع آن شکست می‌خورد (مثلاً میکروفون در اختیار برنامه‌ی دیگری است)
+     */
+    private static final class FailingAudioIo implements AudioIo {
+        int releases;
+        
+        @Override
+        public void start() {
+            throw new IllegalStateException("startRecording() called on an uninitialized AudioRecord");
+        }
+        
+        @Override
+        public void stop() {
+        }
+        
+        @Override
+        public void release() {
+            releases++;
+        }
+        
+        @Override
+        public void prepareAudioThread() {
+        }
+        
+        @Override
+        public int read(short[] buffer, int frames) {
+            return 0;
+        }
+        
+        @Override
+        public int write(short[] buffer, int samples) {
+            return samples;
+        }
+        
+        @Override
+        public int getUnderrunCount() {
+            return 0;
+        }
+        
+        @Override
+        public int setBufferSizeInFrames(int frames) {
+            return frames;
+        }
+    }
+    
+    @Test
+    public void failedStartReleasesAudioIo() {
+        final FailingAudioIo io = new FailingAudioIo();
+        AudioProcessor processor = new AudioProcessor(new FakeAudioDeviceProfile(48000) {
+            @Override
+            public AudioIo open(LatencyTuner tuner) {
+                return io;
+            }
+        });
+        
+        processor.start();
+        assertFalse(processor.isProcessing());
+        assertEquals(1, io.releases);
+        
+        // تلاش دوباره یک AudioIo جدید باز می‌کند و آن را هم آزاد می‌کند؛ stop دوباره آزاد نمی‌کند
+        processor.start();
+        processor.stop();
+        assertEquals(2, io.releases);
+    }
+    
+    @Test
+    public void hearingTestModeSilencesMicrophoneBetweenTones() throws InterruptedException {
+        OutputCapture capture = new OutputCapture();
+        AudioProcessor processor = startLoopback(capture);
+        try {
+            Thread.sleep(200);
+            assertTrue(capture.getMaxLeft() > 1000);
+            
+            processor.setHearingTestMode(true);
+            Thread.sleep(100);
+            capture.clear();
+            Thread.sleep(300);
+            assertEquals(0, capture.getMaxLeft());
+            assertEquals(0, capture.getMaxRight());
+            
+            processor.setHearingTestMode(false);
+            Thread.sleep(100);
+            assertTrue(capture.getMaxLeft() > 1000);
+        } finally {
+            processor.stop();
+        }
+    }
+    
+    @Test
+    public void toneBelowOneLsbIsReproducedWithDither() throws InterruptedException {
+        OutputCapture capture = new OutputCapture();
+        AudioProcessor processor = startLoopback(capture);
+        try {
+            processor.setHearingTestMode(true);
+            // نیم LSB: بدون dither بریده و صفر می‌شد
+            processor.startTestTone(true, TONE_HZ, 0.5f / 32767.0f);
+            Thread.sleep(150);
+            capture.clear();
+            Thread.sleep(1000);
+            
+            assertEquals(0.5, capture.getToneAmplitude(), 0.05);
+            assertTrue(capture.getMaxLeft() <= 2);
+            assertEquals(0, capture.getMaxRight());
+        } finally {
+            processor.stopTestTone();
+            processor.stop();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AudiometryEngineTest {
+    /**
+     * شنونده‌ی شبیه‌سازی شده: تن را فقط در سطح آستانه‌ی خود یا بالاتر می‌شنود
+     */
+    private interface Listener {
+        boolean hears(boolean leftEar, FrequencyBand band, float levelDb);
+    }
+    
+    /**
+     * اجرای کامل آزمون
+     * @return تعداد کل ارائه‌ها
+     */
+    private static int run(AudiometryEngine engine, Listener listener) {
+        engine.start();
+        int presentations = 0;
+        boolean running = true;
+        while (running) {
+            presentations++;
+            assertTrue("بدون پایان", presentations < 1000);
+            running = engine.onResponse(listener.hears(engine.isLeftEar(), engine.getCurrentBand(),
+                    engine.getCurrentLevelDb()));
+        }
+        return presentations;
+    }
+    
+    /**
+     * واسنجی همه‌ی باندها؛ با مرجع -70 dBFS کل محدوده‌ی -10 تا 90 dB HL بالای کف پخش است
+     */
+    private static AudiometryEngine calibratedEngine() {
+        AudiometryEngine engine = new AudiometryEngine();
+        for (FrequencyBand band : FrequencyBand.values()) {
+            engine.setCalibration(band, -70.0f);
+        }
+        return engine;
+    }
+    
+    @Test
+    public void staircaseFindsListenerThreshold() {
+        final float[] left = {10.0f, 15.0f, 20.0f, 25.0f, 40.0f, 55.0f, 70.0f};
+        final float[] right = {0.0f, 5.0f, 30.0f, 35.0f, 45.0f, 60.0f, 85.0f};
+        AudiometryEngine engine = calibratedEngine();
+        run(engine, (leftEar, band, level) -> level >= (leftEar ? left : right)[band.ordinal()]);
+        
+        assertFalse(engine.isRunning());
+        assertTrue(engine.isComplete());
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(band.name(), left[band.ordinal()], engine.getAudiogram(true).getThreshold(band), 0.0f);
+            assertEquals(band.name(), right[band.ordinal()], engine.getAudiogram(false).getThreshold(band), 0.0f);
+        }
+    }
+    
+    @Test
+    public void staircaseSequenceFollowsDownTenUpFive() {
+        // آستانه 25 dB: 40 شنید، 30 شنید، 20 نشنید، 25 شنید (صعودی 1)، 15 نشنید، 20 نشنید، 25 شنید (صعودی 2)
+        AudiometryEngine engine = calibratedEngine();
+        engine.start();
+        assertTrue(engine.isLeftEar());
+        assertEquals(FrequencyBand.MID_1000, engine.getCurrentBand());
+        float[] levels = {40.0f, 30.0f, 20.0f, 25.0f, 15.0f, 20.0f, 25.0f};
+        for (float level : levels) {
+            assertEquals(level, engine.getCurrentLevelDb(), 0.0f);
+            assertTrue(engine.onResponse(level >= 25.0f));
+        }
+        assertEquals(25.0f, engine.getAudiogram(true).getThreshold(FrequencyBand.MID_1000), 0.0f);
+        assertEquals(FrequencyBand.MID_2000, engine.getCurrentBand());
+        assertEquals(AudiometryEngine.START_LEVEL_DB, engine.getCurrentLevelDb(), 0.0f);
+    }
+    
+    @Test
+    public void levelsAreLimitedToRange() {
+        AudiometryEngine deaf = new AudiometryEngine();
+        run(deaf, (leftEar, band, level) -> false);
+        AudiometryEngine perfect = calibratedEngine();
+        run(perfect, (leftEar, band, level) -> true);
+        
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(AudiometryEngine.MAX_LEVEL_DB, deaf.getAudiogram(false).getThreshold(band), 0.0f);
+            assertEquals(AudiometryEngine.MIN_LEVEL_DB, perfect.getAudiogram(true).getThreshold(band), 0.0f);
+        }
+    }
+    
+    @Test
+    public void tonesStayAboveQuantizationFloor() {
+        // بدون واسنجی 0 dB HL معادل -100 dBFS است که زیر کف 16 بیتی است؛ کمترین سطح 20 dB HL (-80 dBFS)
+        float minAmplitude = (float) Math.pow(10.0, AudiometryEngine.MIN_TONE_DBFS / 20.0);
+        AudiometryEngine engine = new AudiometryEngine();
+        float lowest = Float.MAX_VALUE;
+        engine.start();
+        while (engine.isRunning()) {
+            assertTrue(engine.getToneAmplitude() >= minAmplitude * 0.999f);
+            lowest = Math.min(lowest, engine.getCurrentLevelDb());
+            engine.onResponse(true);
+        }
+        assertEquals(20.0f, lowest, 0.0f);
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(20.0f, engine.getMinLevelDb(band), 0.0f);
+            assertEquals(20.0f, engine.getAudiogram(true).getThreshold(band), 0.0f);
+        }
+        
+        // مرجع غیر مضرب 5: کمترین سطح به گام بعدی گرد می‌شود و تن از کف پایین‌تر نمی‌رود
+        engine.setCalibration(FrequencyBand.MID_1000, -93.0f);
+        assertEquals(15.0f, engine.getMinLevelDb(FrequencyBand.MID_1000), 0.0f);
+        // مرجع بسیار پایین: آزمون از کمترین سطح قابل پخش شروع می‌شود
+        engine.setCalibration(FrequencyBand.MID_1000, -135.0f);
+        engine.start();
+        assertEquals(55.0f, engine.getCurrentLevelDb(), 0.0f);
+        assertTrue(engine.getToneAmplitude() >= minAmplitude * 0.999f);
+    }
+    
+    @Test
+    public void prescriptionRequiresCalibration() {
+        final float[] thresholds = {30.0f, 40.0f, 50.0f, 60.0f, 60.0f, 70.0f, 70.0f};
+        AudiometryEngine uncalibrated = new AudiometryEngine();
+        run(uncalibrated, (leftEar, band, level) -> level >= thresholds[band.ordinal()]);
+        FrequencyGainSettings left = new FrequencyGainSettings();
+        FrequencyGainSettings right = new FrequencyGainSettings();
+        assertFalse(uncalibrated.applyPrescription(PrescriptionRule.NAL_R, left, right));
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(0.0f, left.getGainDb(band), 0.0f);
+            assertEquals(0.0f, right.getGainDb(band), 0.0f);
+        }
+        
+        AudiometryEngine calibrated = calibratedEngine();
+        run(calibrated, (leftEar, band, level) -> level >= thresholds[band.ordinal()]);
+        assertTrue(calibrated.applyPrescription(PrescriptionRule.NAL_R, left, right));
+        assertTrue(left.getGainDb(FrequencyBand.HIGH_4000) > 0.0f);
+    }
+    
+    @Test
+    public void inconsistentResponsesEndEachBand() {
+        // پاسخ‌های یک در میان: آزمون باید با سقف ارائه‌ها برای هر باند پایان یابد
+        final int[] count = {0};
+        AudiometryEngine engine = new AudiometryEngine();
+        int presentations = run(engine, (leftEar, band, level) -> (count[0]++ % 2) == 0);
+        
+        assertTrue(engine.isComplete());
+        assertTrue(presentations <= 2 * FrequencyBand.values().length * 30);
+    }
+    
+    @Test
+    public void cancelStopsTest() {
+        AudiometryEngine engine = new AudiometryEngine();
+        engine.start();
+        engine.onResponse(true);
+        engine.cancel();
+        assertFalse(engine.isRunning());
+        assertFalse(engine.onResponse(true));
+        assertFalse(engine.isComplete());
+    }
+    
+    @Test
+    public void toneAmplitudeUsesCalibration() {
+        AudiometryEngine engine = new AudiometryEngine();
+        assertFalse(engine.isCalibrated());
+        engine.start();
+        // بدون واسنجی: 40 dB HL معادل -60 dBFS
+        assertEquals(1e-3f, engine.getToneAmplitude(), 1e-7f);
+        
+        for (FrequencyBand band : FrequencyBand.values()) {
+            engine.setCalibration(band, -70.0f);
+        }
+        assertTrue(engine.isCalibrated());
+        assertEquals((float) Math.pow(10.0, -30.0 / 20.0), engine.getToneAmplitude(), 1e-6f);
+        
+        engine.setCalibration(FrequencyBand.MID_1000, 0.0f);
+        assertEquals(1.0f, engine.getToneAmplitude(), 0.0f);
+    }
+}
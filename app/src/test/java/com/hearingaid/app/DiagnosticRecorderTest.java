@@ -0,0 +1,130 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class DiagnosticRecorderTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int BLOCK = 192;
+    private static final int RING_BLOCKS = 64;
+    private static final int HEADER = 44;
+    // هر بلوک: ورودی مونو و خروجی استریو، 16 بیتی
+    private static final int BLOCK_BYTES = 2 * (BLOCK + 2 * BLOCK);
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final short[] input = new short[BLOCK];
+    private final short[] output = new short[2 * BLOCK];
+    
+    /**
+     * انتظار تا خروج نخ نویسنده (فایل‌ها و شمارنده‌ها نهایی)
+     */
+    private static long waitUntilFinished(DiagnosticRecorder recorder) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!recorder.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return deadline - System.currentTimeMillis();
+    }
+    
+    private static int dataSize(File wav) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(wav, "r")) {
+            raf.seek(40);
+            return Integer.reverseBytes(raf.readInt());
+        }
+    }
+    
+    @Test
+    public void sizeLimitEndsRecordingAndCountsDiscardedBlocks() throws Exception {
+        int limitBlocks = 10;
+        DiagnosticRecorder recorder = new DiagnosticRecorder(folder.getRoot(), SAMPLE_RATE, BLOCK, RING_BLOCKS,
+                2 * HEADER + limitBlocks * BLOCK_BYTES, 60000);
+        assertTrue(recorder.start());
+        
+        int accepted = 0;
+        for (int i = 0; i < 40; i++) {
+            if (recorder.capture(input, BLOCK, output, 2 * BLOCK)) {
+                accepted++;
+            }
+        }
+        assertTrue(waitUntilFinished(recorder) > 0);
+        assertFalse(recorder.isRecording());
+        assertFalse(recorder.capture(input, BLOCK, output, 2 * BLOCK));
+        
+        assertEquals(limitBlocks, recorder.getRecordedBlocks());
+        assertEquals(accepted, recorder.getRecordedBlocks() + recorder.getDroppedBlocks());
+        assertEquals(limitBlocks * BLOCK * 2, dataSize(recorder.getInputFile()));
+        assertEquals(limitBlocks * BLOCK * 4, dataSize(recorder.getOutputFile()));
+    }
+    
+    @Test
+    public void durationLimitEndsRecording() throws Exception {
+        int limitBlocks = 5;
+        long maxDurationMs = limitBlocks * BLOCK * 1000L / SAMPLE_RATE;
+        DiagnosticRecorder recorder = new DiagnosticRecorder(folder.getRoot(), SAMPLE_RATE, BLOCK, RING_BLOCKS,
+                Long.MAX_VALUE, maxDurationMs);
+        assertTrue(recorder.start());
+        
+        int accepted = 0;
+        for (int i = 0; i < 8; i++) {
+            if (recorder.capture(input, BLOCK, output, 2 * BLOCK)) {
+                accepted++;
+            }
+        }
+        assertEquals(limitBlocks, accepted);
+        assertTrue(waitUntilFinished(recorder) > 0);
+        
+        assertEquals(limitBlocks, recorder.getRecordedBlocks());
+        assertEquals(0, recorder.getDroppedBlocks());
+        assertEquals(limitBlocks * BLOCK * 2, dataSize(recorder.getInputFile()));
+    }
+    
+    @Test
+    public void stopCompletesFilesInBackground() throws Exception {
+        DiagnosticRecorder recorder = new DiagnosticRecorder(folder.getRoot(), SAMPLE_RATE, BLOCK, RING_BLOCKS,
+                Long.MAX_VALUE, 60000);
+        assertTrue(recorder.start());
+        int accepted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (recorder.capture(input, BLOCK, output, 2 * BLOCK)) {
+                accepted++;
+            }
+        }
+        
+        // توقف منتظر نخ نویسنده نمی‌ماند؛ نوشتن بلوک‌های باقی‌مانده و هدرها در پس‌زمینه تمام می‌شود
+        recorder.stop();
+        assertFalse(recorder.isRecording());
+        assertFalse(recorder.capture(input, BLOCK, output, 2 * BLOCK));
+        assertTrue(waitUntilFinished(recorder) > 0);
+        
+        assertEquals(accepted, recorder.getRecordedBlocks() + recorder.getDroppedBlocks());
+        assertEquals(recorder.getRecordedBlocks() * BLOCK * 2, dataSize(recorder.getInputFile()));
+        assertEquals(recorder.getRecordedBlocks() * BLOCK * 4, dataSize(recorder.getOutputFile()));
+    }
+    
+    @Test
+    public void processorReportsStoppedRecording() throws Exception {
+        AudioProcessor processor = new AudioProcessor(new FakeAudioDeviceProfile(SAMPLE_RATE));
+        File directory = folder.newFolder("diagnostics");
+        assertTrue(processor.startDiagnosticRecording(directory));
+        assertTrue(processor.isDiagnosticRecording());
+        assertFalse(processor.startDiagnosticRecording(directory));
+        
+        DiagnosticRecorder recorder = processor.stopDiagnosticRecording();
+        assertFalse(recorder.isRecording());
+        assertFalse(processor.isDiagnosticRecording());
+        assertTrue(waitUntilFinished(recorder) > 0);
+        assertTrue(processor.startDiagnosticRecording(directory));
+        processor.stopDiagnosticRecording();
+    }
+}
@@ -0,0 +1,47 @@
+package com.hearingaid.app;
+
+/**
+ * مشخصات ثابت دستگاه برای آزمون‌ها (بدون ورودی/خروجی صدا)
+ */
+class FakeAudioDeviceProfile implements AudioDeviceProfile {
+    private final int sampleRate;
+    private final int framesPerBurst;
+    private final int minRecordBufferBytes;
+    private final int minTrackBufferBytes;
+    
+    FakeAudioDeviceProfile(int sampleRate, int framesPerBurst, int minRecordBufferBytes, int minTrackBufferBytes) {
+        this.sampleRate = sampleRate;
+        this.framesPerBurst = framesPerBurst;
+        this.minRecordBufferBytes = minRecordBufferBytes;
+        this.minTrackBufferBytes = minTrackBufferBytes;
+    }
+    
+    FakeAudioDeviceProfile(int sampleRate) {
+        this(sampleRate, 192, 3840, 7680);
+    }
+    
+    @Override
+    public int getNativeSampleRate() {
+        return sampleRate;
+    }
+    
+    @Override
+    public int getFramesPerBurst() {
+        return framesPerBurst;
+    }
+    
+    @Override
+    public int getMinRecordBufferBytes(int sampleRate) {
+        return minRecordBufferBytes;
+    }
+    
+    @Override
+    public int getMinTrackBufferBytes(int sampleRate) {
+        return minTrackBufferBytes;
+    }
+    
+    @Override
+    public AudioIo open(LatencyTuner tuner) {
+        return null;
+    }
+}
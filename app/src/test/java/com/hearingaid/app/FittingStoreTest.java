@@ -0,0 +1,233 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class FittingStoreTest {
+    // موقعیت فیلدها در قالب نسخه 5
+    private static final int MASTER_VOLUME_OFFSET = 16;
+    private static final int FIRST_GAIN_OFFSET = 20;
+    private static final int BAND_RECORD_SIZE = 4 + 8 * 6;
+    private static final int MAGIC = 0x48414654;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static AudioProcessor newProcessor() {
+        return new AudioProcessor(new FakeAudioDeviceProfile(48000));
+    }
+    
+    private File savedFitting() throws IOException {
+        AudioProcessor processor = newProcessor();
+        processor.getLeftEarGains().setGain(FrequencyBand.MID_2000, 12.0f);
+        processor.getRightEarGains().setGain(FrequencyBand.MID_500, -6.0f);
+        processor.setMasterVolume(1.5f);
+        processor.setNoiseReductionLevel(0.25f);
+        processor.setFrequencyCompression(true, 2000.0f, 2.0f);
+        processor.setTransientSuppression(0.6f);
+        File file = folder.newFile("fitting.bin");
+        assertTrue(new FittingStore(file).save(processor));
+        return file;
+    }
+    
+    private static void overwriteFloat(File file, int offset, float value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            raf.writeInt(Integer.reverseBytes(Float.floatToRawIntBits(value)));
+        }
+    }
+    
+    /**
+     * بازنویسی ضرایب یک باند گوش چپ
+     */
+    private static void overwriteCoefficients(File file, FrequencyBand band, double[] b, double[] a) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(FIRST_GAIN_OFFSET + band.ordinal() * BAND_RECORD_SIZE + 4);
+            for (double value : new double[]{b[0], b[1], b[2], a[0], a[1], a[2]}) {
+                raf.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+            }
+        }
+    }
+    
+    /**
+     * فایل نسخه 1 یا 2 با ضرایب float؛ تقویت باند MID_2000 گوش چپ 12 dB و فشرده‌سازی گوش چپ 2000 هرتز با نسبت 2
+     */
+    private File legacyFitting(short version) throws IOException {
+        FrequencyBand[] bands = FrequencyBand.values();
+        ByteBuffer buffer = ByteBuffer.allocate(20 + 2 * bands.length * (4 + 4 * 6) + 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(version);
+        buffer.putShort((short) bands.length);
+        buffer.putInt(48000);
+        buffer.putFloat(0.25f);
+        buffer.putFloat(1.5f);
+        for (int ear = 0; ear < 2; ear++) {
+            for (FrequencyBand band : bands) {
+                buffer.putFloat(ear == 0 && band == FrequencyBand.MID_2000 ? (float) Math.pow(10.0, 12.0 / 20.0) : 1.0f);
+                for (int i = 0; i < 6; i++) {
+                    buffer.putFloat(0.0f);
+                }
+            }
+        }
+        if (version >= 2) {
+            buffer.putFloat(2000.0f).putFloat(2.0f).putFloat(0.0f).putFloat(1.0f);
+        }
+        File file = folder.newFile("fitting-v" + version + ".bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array(), 0, buffer.position());
+        }
+        return file;
+    }
+    
+    private static void assertFilter(IIRFilter expected, IIRFilter actual) {
+        assertArrayEquals(expected.getNumerator(), actual.getNumerator(), 1e-12);
+        assertArrayEquals(expected.getDenominator(), actual.getDenominator(), 1e-12);
+    }
+    
+    private static void assertDesignedFilters(AudioProcessor processor) {
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertFilter(band.getFilter(48000), processor.getLeftFilterBank().getFilter(band));
+            assertFilter(band.getFilter(48000), processor.getRightFilterBank().getFilter(band));
+        }
+    }
+    
+    private static void assertUnchanged(AudioProcessor processor) {
+        assertEquals(1.0f, processor.getMasterVolume(), 0.0f);
+        assertEquals(0.5f, processor.getNoiseReductionLevel(), 0.0f);
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(1.0f, processor.getLeftEarGains().getGain(band), 0.0f);
+            assertEquals(1.0f, processor.getRightEarGains().getGain(band), 0.0f);
+        }
+        assertFalse(processor.getLeftFrequencyCompressor().isEnabled());
+        assertEquals(0.0f, processor.getTransientSuppression(), 0.0f);
+    }
+    
+    @Test
+    public void roundTripRestoresSettings() throws IOException {
+        File file = savedFitting();
+        AudioProcessor processor = newProcessor();
+        
+        assertTrue(new FittingStore(file).load(processor));
+        assertEquals(1.5f, processor.getMasterVolume(), 0.0f);
+        assertEquals(0.25f, processor.getNoiseReductionLevel(), 0.0f);
+        assertEquals(12.0f, processor.getLeftEarGains().getGainDb(FrequencyBand.MID_2000), 1e-4f);
+        assertEquals(-6.0f, processor.getRightEarGains().getGainDb(FrequencyBand.MID_500), 1e-4f);
+        assertEquals(2.0f, processor.getLeftFrequencyCompressor().getRatio(), 0.0f);
+        assertEquals(0.6f, processor.getTransientSuppression(), 0.0f);
+    }
+    
+    @Test
+    public void outOfRangeTransientDepthIsRejected() throws IOException {
+        for (float value : new float[]{-0.1f, 1.5f, Float.NaN}) {
+            File file = savedFitting();
+            overwriteFloat(file, (int) file.length() - 4, value);
+            AudioProcessor processor = newProcessor();
+            
+            assertFalse("depth " + value, new FittingStore(file).load(processor));
+            assertUnchanged(processor);
+            assertTrue(file.delete());
+        }
+    }
+    
+    @Test
+    public void nanMasterVolumeIsRejected() throws IOException {
+        File file = savedFitting();
+        overwriteFloat(file, MASTER_VOLUME_OFFSET, Float.NaN);
+        AudioProcessor processor = newProcessor();
+        
+        assertFalse(new FittingStore(file).load(processor));
+        assertUnchanged(processor);
+    }
+    
+    @Test
+    public void outOfRangeGainIsRejected() throws IOException {
+        float[] invalid = {-1.0f, 0.0f, Float.NaN, Float.POSITIVE_INFINITY, 1000.0f};
+        for (float value : invalid) {
+            File file = savedFitting();
+            overwriteFloat(file, FIRST_GAIN_OFFSET, value);
+            AudioProcessor processor = newProcessor();
+            
+            assertFalse("gain " + value, new FittingStore(file).load(processor));
+            assertUnchanged(processor);
+            assertTrue(file.delete());
+        }
+    }
+    
+    @Test
+    public void loadedCoefficientsAreUsed() throws IOException {
+        // ضرایب باند دیگر با a0 = 2 (پس از نرمال‌سازی پایدار)
+        File file = savedFitting();
+        IIRFilter other = FrequencyBand.LOW_250.getFilter(48000);
+        double[] b = other.getNumerator();
+        double[] a = other.getDenominator();
+        for (int i = 0; i < 3; i++) {
+            b[i] *= 2.0;
+            a[i] *= 2.0;
+        }
+        overwriteCoefficients(file, FrequencyBand.LOW_125, b, a);
+        AudioProcessor processor = newProcessor();
+        
+        assertTrue(new FittingStore(file).load(processor));
+        assertFilter(other, processor.getLeftFilterBank().getFilter(FrequencyBand.LOW_125));
+    }
+    
+    @Test
+    public void unstableCoefficientsAreRejected() throws IOException {
+        // قطب خارج از دایره‌ی واحد: |a2| >= 1 یا |a1| >= 1 + a2 (یکی با a0 غیر از 1)
+        double[][] unstable = {{1.0, -1.5, 1.2}, {1.0, -2.0, 0.999}, {2.0, -3.0, 2.0}, {-1.0, 0.5, 0.5}};
+        for (double[] a : unstable) {
+            File file = savedFitting();
+            overwriteCoefficients(file, FrequencyBand.LOW_125, new double[]{0.01, 0.0, -0.01}, a);
+            AudioProcessor processor = newProcessor();
+            
+            assertFalse(a[0] + " " + a[1] + " " + a[2], new FittingStore(file).load(processor));
+            assertUnchanged(processor);
+            assertTrue(file.delete());
+        }
+    }
+    
+    @Test
+    public void coefficientsOfOtherDesignAreRedesigned() throws IOException {
+        File file = savedFitting();
+        IIRFilter other = FrequencyBand.LOW_250.getFilter(48000);
+        overwriteCoefficients(file, FrequencyBand.LOW_125, other.getNumerator(), other.getDenominator());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 8);
+            raf.writeInt(Integer.reverseBytes(FrequencyBand.getDesignHash() + 1));
+        }
+        AudioProcessor processor = newProcessor();
+        
+        assertTrue(new FittingStore(file).load(processor));
+        assertEquals(1.5f, processor.getMasterVolume(), 0.0f);
+        assertDesignedFilters(processor);
+    }
+    
+    @Test
+    public void legacyVersionsLoad() throws IOException {
+        for (short version = 1; version <= 2; version++) {
+            AudioProcessor processor = newProcessor();
+            
+            assertTrue("v" + version, new FittingStore(legacyFitting(version)).load(processor));
+            assertEquals(1.5f, processor.getMasterVolume(), 0.0f);
+            assertEquals(0.25f, processor.getNoiseReductionLevel(), 0.0f);
+            assertEquals(12.0f, processor.getLeftEarGains().getGainDb(FrequencyBand.MID_2000), 1e-4f);
+            assertEquals(version >= 2, processor.getLeftFrequencyCompressor().isEnabled());
+            // ضرایب float قدیمی (اینجا صفر) استفاده نمی‌شوند؛ کاهش ضربه خاموش می‌ماند
+            assertDesignedFilters(processor);
+            assertEquals(0.0f, processor.getTransientSuppression(), 0.0f);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class FrequencyCompressorTest {
+    private static final int[] SAMPLE_RATES = {44100, 48000};
+    private static final int BLOCK = 192;
+    private static final float AMPLITUDE = 0.5f;
+    // پس از پر شدن خط تأخیر و پایدار شدن فاز
+    private static final int SETTLE = 8192;
+    private static final int MEASURE = 8192;
+    
+    private static float[] tone(float frequencyHz, int sampleRate, int length) {
+        float[] x = new float[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = AMPLITUDE * (float) Math.sin(2.0 * Math.PI * frequencyHz * i / sampleRate);
+        }
+        return x;
+    }
+    
+    private static void processInBlocks(FrequencyCompressor compressor, float[] samples) {
+        float[] block = new float[BLOCK];
+        for (int offset = 0; offset < samples.length; offset += BLOCK) {
+            int length = Math.min(BLOCK, samples.length - offset);
+            System.arraycopy(samples, offset, block, 0, length);
+            compressor.process(block, length);
+            System.arraycopy(block, 0, samples, offset, length);
+        }
+    }
+    
+    private static double levelDb(float[] x, int offset, int length) {
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += x[i] * x[i];
+        }
+        return 20.0 * Math.log10(Math.sqrt(sum / length) / (AMPLITUDE / Math.sqrt(2.0)));
+    }
+    
+    /**
+     * فرکانس غالب از زمان عبورهای از صفر (با درون‌یابی خطی)
+     */
+    private static double zeroCrossingHz(float[] x, int offset, int length, int sampleRate) {
+        double first = -1.0;
+        double last = -1.0;
+        int crossings = 0;
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (x[i - 1] < 0.0f && x[i] >= 0.0f) {
+                double t = i - 1 + x[i - 1] / (x[i - 1] - x[i]);
+                if (first < 0.0) {
+                    first = t;
+                }
+                last = t;
+                crossings++;
+            }
+        }
+        return (crossings - 1) * sampleRate / (last - first);
+    }
+    
+    @Test
+    public void compressedTonesKeepLevelAndMapFrequency() {
+        for (int sampleRate : SAMPLE_RATES) {
+            for (float ratio : new float[]{2.0f, 3.0f}) {
+                for (float f = 2100.0f; f < Math.min(9000.0f, sampleRate / 2.0f - 1000.0f); f += 97.0f) {
+                    FrequencyCompressor compressor = new FrequencyCompressor(sampleRate);
+                    compressor.setParameters(2000.0f, ratio);
+                    float[] y = tone(f, sampleRate, SETTLE + MEASURE);
+                    processInBlocks(compressor, y);
+                    
+                    String label = sampleRate + " Hz, ratio " + ratio + ", tone " + f;
+                    double expected = FrequencyCompressor.mapFrequency(f, 2000.0f, ratio);
+                    assertEquals(label, expected, zeroCrossingHz(y, SETTLE, MEASURE, sampleRate), expected * 0.005);
+                    assertEquals(label, 0.0, levelDb(y, SETTLE, MEASURE), 1.0);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void tonesBelowCutoffPassUnchanged() {
+        for (int sampleRate : SAMPLE_RATES) {
+            for (float f : new float[]{250.0f, 1000.0f, 1800.0f}) {
+                FrequencyCompressor compressor = new FrequencyCompressor(sampleRate);
+                compressor.setParameters(2000.0f, 2.0f);
+                float[] y = tone(f, sampleRate, SETTLE + MEASURE);
+                processInBlocks(compressor, y);
+                
+                String label = sampleRate + " Hz, tone " + f;
+                assertEquals(label, f, zeroCrossingHz(y, SETTLE, MEASURE, sampleRate), f * 0.001);
+                assertEquals(label, 0.0, levelDb(y, SETTLE, MEASURE), 0.5);
+            }
+        }
+    }
+    
+    @Test
+    public void sweptSineFollowsMapping() {
+        for (int sampleRate : SAMPLE_RATES) {
+            FrequencyCompressor compressor = new FrequencyCompressor(sampleRate);
+            compressor.setParameters(2500.0f, 3.0f);
+            int length = sampleRate * 4;
+            double[] inputHz = new double[length];
+            float[] y = new float[length];
+            double phase = 0.0;
+            for (int i = 0; i < length; i++) {
+                inputHz[i] = 500.0 + 9500.0 * i / length;
+                phase += 2.0 * Math.PI * inputHz[i] / sampleRate;
+                y[i] = AMPLITUDE * (float) Math.sin(phase);
+            }
+            processInBlocks(compressor, y);
+            
+            int window = 2048;
+            for (int offset = SETTLE; offset + window < length; offset += sampleRate / 4) {
+                int center = offset + window / 2 - compressor.getLatencySamples();
+                double expected = FrequencyCompressor.mapFrequency((float) inputHz[center], 2500.0f, 3.0f);
+                double measured = zeroCrossingHz(y, offset, window, sampleRate);
+                assertEquals(sampleRate + " Hz, input " + inputHz[center], expected, measured, expected * 0.01);
+                assertEquals(sampleRate + " Hz, input " + inputHz[center], 0.0, levelDb(y, offset, window), 1.5);
+            }
+        }
+    }
+    
+    @Test
+    public void unityRatioBypassesWithoutLatency() {
+        FrequencyCompressor compressor = new FrequencyCompressor(48000);
+        compressor.setParameters(2000.0f, 1.0f);
+        float[] x = tone(6000.0f, 48000, 4096);
+        float[] y = x.clone();
+        processInBlocks(compressor, y);
+        
+        assertFalse(compressor.isEnabled());
+        assertArrayEquals(x, y, 0.0f);
+    }
+}
@@ -0,0 +1,97 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * مقایسه‌ی پاسخ تحلیلی با پاسخ اندازه‌گیری شده‌ی FilterBank با سینوسی‌های پله‌ای (stepped sine sweep)
+ */
+public class FrequencyResponseTest {
+    private static final int BLOCK = 192;
+    private static final float VOLUME = 1.3f;
+    
+    private static FrequencyGainSettings fitting() {
+        FrequencyGainSettings gains = new FrequencyGainSettings();
+        gains.setGain(FrequencyBand.LOW_250, 6.0f);
+        gains.setGain(FrequencyBand.MID_1000, 10.0f);
+        gains.setGain(FrequencyBand.MID_2000, 15.0f);
+        gains.setGain(FrequencyBand.HIGH_4000, -6.0f);
+        return gains;
+    }
+    
+    /**
+     * اندازه (dB) و فاز خروجی حالت پایدار FilterBank برای یک سینوسی، مانند مسیر پردازش (بلوک به بلوک و سپس صدا)
+     */
+    private static double[] measure(int sampleRate, FrequencyGainSettings gains, float frequencyHz) {
+        FilterBank filterBank = new FilterBank(sampleRate);
+        // یک ثانیه برای میرا شدن پاسخ گذرای باندهای پایین
+        int settle = sampleRate;
+        int length = 2 * sampleRate;
+        double w = 2.0 * Math.PI * frequencyHz / sampleRate;
+        float[] block = new float[BLOCK];
+        double re = 0.0;
+        double im = 0.0;
+        for (int offset = 0; offset < length; offset += BLOCK) {
+            for (int i = 0; i < BLOCK; i++) {
+                block[i] = (float) Math.sin(w * (offset + i));
+            }
+            filterBank.process(block, BLOCK, gains);
+            for (int i = 0; i < BLOCK; i++) {
+                int n = offset + i;
+                if (n >= settle) {
+                    double y = block[i] * VOLUME;
+                    re += y * Math.sin(w * n);
+                    im += y * Math.cos(w * n);
+                }
+            }
+        }
+        int measured = length - settle;
+        re *= 2.0 / measured;
+        im *= 2.0 / measured;
+        return new double[]{20.0 * Math.log10(Math.hypot(re, im)), Math.atan2(im, re)};
+    }
+    
+    @Test
+    public void analyticResponseMatchesSteppedSineSweep() {
+        for (int sampleRate : new int[]{44100, 48000}) {
+            FrequencyGainSettings gains = fitting();
+            FrequencyResponse response = new FrequencyResponse(sampleRate, 64, 100.0f, 10000.0f);
+            response.compute(new FilterBank(sampleRate), gains, VOLUME);
+            float[] frequencies = response.getFrequencies();
+            
+            for (int i = 0; i < frequencies.length; i += 3) {
+                double[] measured = measure(sampleRate, gains, frequencies[i]);
+                String label = sampleRate + " Hz, " + frequencies[i] + " Hz";
+                assertEquals(label, response.getMagnitudeDb()[i], measured[0], 0.05);
+                double phaseError = measured[1] - response.getPhase()[i];
+                assertEquals(label, 0.0, Math.atan2(Math.sin(phaseError), Math.cos(phaseError)), 0.01);
+            }
+        }
+    }
+    
+    @Test
+    public void flatFittingIsUnityTimesVolume() {
+        FrequencyResponse response = new FrequencyResponse(48000, 32, 20.0f, 20000.0f);
+        response.compute(new FilterBank(48000), new FrequencyGainSettings(), 0.5f);
+        for (float magnitudeDb : response.getMagnitudeDb()) {
+            assertEquals(20.0 * Math.log10(0.5), magnitudeDb, 1e-4);
+        }
+    }
+    
+    @Test
+    public void resultIsCachedUntilSettingsChange() {
+        FilterBank filterBank = new FilterBank(48000);
+        FrequencyGainSettings gains = fitting();
+        FrequencyResponse response = new FrequencyResponse(48000, 32, 20.0f, 20000.0f);
+        
+        assertTrue(response.compute(filterBank, gains, VOLUME));
+        assertFalse(response.compute(filterBank, gains, VOLUME));
+        gains.setGain(FrequencyBand.HIGH_8000, 3.0f);
+        assertTrue(response.compute(filterBank, gains, VOLUME));
+        assertTrue(response.compute(filterBank, gains, 1.0f));
+        assertTrue(response.compute(new FilterBank(48000), gains, 1.0f));
+    }
+}
@@ -0,0 +1,185 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * مقایسه‌ی زمان FilterBank با دقت ترکیبی (double برای باندهای پایین) با دو مرجع تمام float:
+ * پیاده‌سازی اصلی IIRFilter (فرم مستقیم I با جابجایی آرایه‌ی تاریخچه) و ساختار فعلی بدون مسیر double
+ * فقط با -Dbenchmark=true اجرا می‌شود تا آزمون‌های عادی به بار CPU ماشین وابسته نباشند
+ */
+public class IIRFilterBenchmark {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int BLOCK = 192;
+    private static final int BLOCKS = 20000;
+    private static final int TRIALS = 7;
+    
+    private interface FloatFilter {
+        void process(float[] samples, int length, float gain);
+    }
+    
+    /**
+     * پیاده‌سازی اصلی IIRFilter (پیش از دقت ترکیبی): فرم مستقیم I تمام float با جابجایی آرایه‌های
+     * تاریخچه برای هر نمونه و تقسیم بر a0؛ فیلتر برخلاف AudioProcessor اصلی برای هر بلوک دوباره طراحی نمی‌شود
+     */
+    private static final class OriginalBiquad implements FloatFilter {
+        private final float[] a = new float[3];
+        private final float[] b = new float[3];
+        private final float[] xHistory = new float[3];
+        private final float[] yHistory = new float[3];
+        private final int order = 2;
+        
+        OriginalBiquad(IIRFilter filter) {
+            double[] nb = filter.getNumerator();
+            double[] na = filter.getDenominator();
+            for (int i = 0; i <= order; i++) {
+                b[i] = (float) nb[i];
+                a[i] = (float) na[i];
+            }
+        }
+        
+        @Override
+        public void process(float[] samples, int length, float gain) {
+            for (int i = 0; i < length; i++) {
+                samples[i] = filterSample(samples[i]) * gain;
+            }
+        }
+        
+        private float filterSample(float input) {
+            for (int i = order; i > 0; i--) {
+                xHistory[i] = xHistory[i - 1];
+                yHistory[i] = yHistory[i - 1];
+            }
+            xHistory[0] = input;
+            
+            float output = 0.0f;
+            for (int i = 0; i <= order; i++) {
+                output += b[i] * xHistory[i];
+            }
+            for (int i = 1; i <= order; i++) {
+                output -= a[i] * yHistory[i];
+            }
+            output /= a[0];
+            
+            yHistory[0] = output;
+            return output;
+        }
+    }
+    
+    /**
+     * مسیر float فعلی IIRFilter (فرم مستقیم II ترانهاده با y جای‌گذاری شده) برای همه‌ی باندها
+     */
+    private static final class FloatBiquad implements FloatFilter {
+        private final float b0, c1, c2, a1, a2;
+        private float z1, z2;
+        
+        FloatBiquad(IIRFilter filter) {
+            double[] b = filter.getNumerator();
+            double[] a = filter.getDenominator();
+            b0 = (float) b[0];
+            c1 = (float) (b[1] - a[1] * b[0]);
+            c2 = (float) (b[2] - a[2] * b[0]);
+            a1 = (float) a[1];
+            a2 = (float) a[2];
+        }
+        
+        @Override
+        public void process(float[] samples, int length, float gain) {
+            float s1 = z1;
+            float s2 = z2;
+            for (int i = 0; i < length; i++) {
+                float x = samples[i] + 1e-20f;
+                float y = b0 * x + s1;
+                float next = (c1 * x + s2) - a1 * s1;
+                s2 = c2 * x - a2 * s1;
+                s1 = next;
+                samples[i] = y * gain;
+            }
+            z1 = s1;
+            z2 = s2;
+        }
+    }
+    
+    private static float[] noise() {
+        Random random = new Random(3);
+        float[] x = new float[BLOCK * 64];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = 0.1f * (float) random.nextGaussian();
+        }
+        return x;
+    }
+    
+    private static long timeMixed(FilterBank filterBank, FrequencyGainSettings gains, float[] source) {
+        float[] block = new float[BLOCK];
+        long start = System.nanoTime();
+        for (int k = 0; k < BLOCKS; k++) {
+            System.arraycopy(source, (k % 64) * BLOCK, block, 0, BLOCK);
+            filterBank.process(block, BLOCK, gains);
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static long timeFloat(FloatFilter[] filters, float[] bandGains, float[] source) {
+        float[] block = new float[BLOCK];
+        long start = System.nanoTime();
+        for (int k = 0; k < BLOCKS; k++) {
+            System.arraycopy(source, (k % 64) * BLOCK, block, 0, BLOCK);
+            for (int b = 0; b < filters.length; b++) {
+                filters[b].process(block, BLOCK, bandGains[b]);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static FloatFilter[] floatBank(boolean original) {
+        FrequencyBand[] bands = FrequencyBand.values();
+        FloatFilter[] filters = new FloatFilter[bands.length];
+        for (FrequencyBand band : bands) {
+            IIRFilter filter = band.getFilter(SAMPLE_RATE);
+            filters[band.ordinal()] = original ? new OriginalBiquad(filter) : new FloatBiquad(filter);
+        }
+        return filters;
+    }
+    
+    @Test
+    public void mixedPrecisionCostsNoMoreThanFloat() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        
+        FrequencyBand[] bands = FrequencyBand.values();
+        FilterBank filterBank = new FilterBank(SAMPLE_RATE);
+        FrequencyGainSettings gains = new FrequencyGainSettings();
+        float[] bandGains = new float[bands.length];
+        for (FrequencyBand band : bands) {
+            gains.setGain(band, 6.0f);
+            bandGains[band.ordinal()] = gains.getGain(band);
+        }
+        FloatFilter[] original = floatBank(true);
+        FloatFilter[] current = floatBank(false);
+        float[] source = noise();
+        
+        // گرم کردن JIT و سپس کمترین زمان از چند تکرار
+        long mixed = Long.MAX_VALUE;
+        long originalFloat = Long.MAX_VALUE;
+        long currentFloat = Long.MAX_VALUE;
+        for (int trial = 0; trial < TRIALS + 3; trial++) {
+            long m = timeMixed(filterBank, gains, source);
+            long o = timeFloat(original, bandGains, source);
+            long c = timeFloat(current, bandGains, source);
+            if (trial >= 3) {
+                mixed = Math.min(mixed, m);
+                originalFloat = Math.min(originalFloat, o);
+                currentFloat = Math.min(currentFloat, c);
+            }
+        }
+        double realtime = (double) BLOCKS * BLOCK / SAMPLE_RATE * 1e9;
+        System.out.printf("IIRFilter: mixed %.1f ms (%.0fx realtime), original float %.1f ms, current float %.1f ms%n",
+                mixed / 1e6, realtime / mixed, originalFloat / 1e6, currentFloat / 1e6);
+        assertTrue("mixed " + mixed + " ns > original float " + originalFloat + " ns", mixed <= originalFloat);
+        // تنها هزینه‌ی اضافه یک بار تبدیل float/double برای باندهای پایین است؛ 20 درصد حاشیه برای نوسان زمان‌بندی
+        assertTrue("mixed " + mixed + " ns > 1.2 x float " + currentFloat + " ns", mixed <= currentFloat * 1.2);
+    }
+}
@@ -0,0 +1,179 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class IIRFilterTest {
+    private static final int[] SAMPLE_RATES = {44100, 48000};
+    
+    /**
+     * مرجع double با فرم مستقیم I و همان ضرایب
+     */
+    private static double[] reference(IIRFilter filter, float[] x, float gain) {
+        double[] b = filter.getNumerator();
+        double[] a = filter.getDenominator();
+        double[] y = new double[x.length];
+        double x1 = 0.0, x2 = 0.0, y1 = 0.0, y2 = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            double v = b[0] * x[i] + b[1] * x1 + b[2] * x2 - a[1] * y1 - a[2] * y2;
+            x2 = x1;
+            x1 = x[i];
+            y2 = y1;
+            y1 = v;
+            y[i] = v * gain;
+        }
+        return y;
+    }
+    
+    private static void processInBlocks(IIRFilter filter, float[] samples, float gain) {
+        float[] block = new float[192];
+        for (int offset = 0; offset < samples.length; offset += block.length) {
+            int length = Math.min(block.length, samples.length - offset);
+            System.arraycopy(samples, offset, block, 0, length);
+            filter.process(block, length, gain);
+            System.arraycopy(block, 0, samples, offset, length);
+        }
+    }
+    
+    @Test
+    public void noiseFloorAgainstDoubleReference() {
+        for (int sampleRate : SAMPLE_RATES) {
+            for (FrequencyBand band : FrequencyBand.values()) {
+                IIRFilter filter = band.getFilter(sampleRate);
+                int length = sampleRate * 5;
+                float[] x = new float[length];
+                Random random = new Random(1);
+                for (int i = 0; i < length; i++) {
+                    x[i] = (float) (0.3 * Math.sin(2.0 * Math.PI * band.getCenterFrequency() * i / sampleRate)
+                            + 0.01 * random.nextGaussian());
+                }
+                double[] expected = reference(filter, x, 1.0f);
+                processInBlocks(filter, x, 1.0f);
+                
+                double signal = 0.0;
+                double error = 0.0;
+                for (int i = 0; i < length; i++) {
+                    signal += expected[i] * expected[i];
+                    error += (x[i] - expected[i]) * (x[i] - expected[i]);
+                }
+                double errorDb = 10.0 * Math.log10(error / signal);
+                // باندهای double تا دقت تبدیل به float خروجی؛ باندهای float حدود 117- تا 145- dB
+                double limitDb = filter.isDoublePrecision() ? -140.0 : -110.0;
+                assertTrue(sampleRate + " " + band + ": " + errorDb + " dB", errorDb < limitDb);
+            }
+        }
+    }
+    
+    @Test
+    public void lowBandsUseDoublePrecision() {
+        for (int sampleRate : SAMPLE_RATES) {
+            assertTrue(FrequencyBand.LOW_125.getFilter(sampleRate).isDoublePrecision());
+            assertTrue(FrequencyBand.LOW_250.getFilter(sampleRate).isDoublePrecision());
+            assertFalse(FrequencyBand.HIGH_4000.getFilter(sampleRate).isDoublePrecision());
+            assertFalse(FrequencyBand.HIGH_8000.getFilter(sampleRate).isDoublePrecision());
+        }
+    }
+    
+    @Test
+    public void silentTailHasNoSubnormalOutput() {
+        for (int sampleRate : SAMPLE_RATES) {
+            for (FrequencyBand band : FrequencyBand.values()) {
+                IIRFilter filter = band.getFilter(sampleRate);
+                float[] x = new float[sampleRate * 20];
+                x[0] = 0.5f;
+                processInBlocks(filter, x, 1.0f);
+                
+                int subnormal = 0;
+                for (float v : x) {
+                    if (v != 0.0f && Math.abs(v) < Float.MIN_NORMAL) {
+                        subnormal++;
+                    }
+                }
+                assertEquals(sampleRate + " " + band, 0, subnormal);
+            }
+        }
+    }
+    
+    @Test
+    public void polesInsideUnitCircle() {
+        for (int sampleRate : new int[]{16000, 22050, 44100, 48000, 96000}) {
+            for (FrequencyBand band : FrequencyBand.values()) {
+                if (band.getCenterFrequency() >= sampleRate / 2.0f) {
+                    continue;
+                }
+                double[] a = band.getFilter(sampleRate).getDenominator();
+                // شرط پایداری biquad (مثلث پایداری)
+                String label = sampleRate + " " + band;
+                assertTrue(label, Math.abs(a[2]) < 1.0);
+                assertTrue(label, Math.abs(a[1]) < 1.0 + a[2]);
+            }
+        }
+    }
+    
+    @Test
+    public void fullScaleNoiseAtMaximumGainStaysBounded() {
+        for (int sampleRate : SAMPLE_RATES) {
+            FilterBank filterBank = new FilterBank(sampleRate);
+            FrequencyGainSettings gains = new FrequencyGainSettings();
+            for (FrequencyBand band : FrequencyBand.values()) {
+                gains.setGain(band, 20.0f);
+            }
+            Random random = new Random(2);
+            float[] block = new float[1024];
+            double firstHalfMax = 0.0;
+            double secondHalfMax = 0.0;
+            int blocks = 2000;
+            for (int k = 0; k < blocks; k++) {
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = random.nextFloat() * 2.0f - 1.0f;
+                }
+                filterBank.process(block, block.length, gains);
+                for (float v : block) {
+                    assertFalse(Float.isNaN(v) || Float.isInfinite(v));
+                    if (k < blocks / 2) {
+                        firstHalfMax = Math.max(firstHalfMax, Math.abs(v));
+                    } else {
+                        secondHalfMax = Math.max(secondHalfMax, Math.abs(v));
+                    }
+                }
+            }
+            assertTrue(sampleRate + ": " + firstHalfMax + " -> " + secondHalfMax, secondHalfMax < 2.0 * firstHalfMax);
+        }
+    }
+    
+    @Test
+    public void filterBankMatchesCascadedFilters() {
+        FrequencyGainSettings gains = new FrequencyGainSettings();
+        gains.setGain(FrequencyBand.LOW_125, 8.0f);
+        gains.setGain(FrequencyBand.MID_500, -4.0f);
+        gains.setGain(FrequencyBand.MID_2000, 12.0f);
+        gains.setGain(FrequencyBand.HIGH_8000, 6.0f);
+        FilterBank filterBank = new FilterBank(48000);
+        FilterBank cascade = new FilterBank(48000);
+        
+        Random random = new Random(4);
+        // طول بلوک بزرگ‌تر از بافر کاری مسیر double تا تکه تکه شدن هم آزموده شود
+        float[] block = new float[600];
+        float[] expected = new float[block.length];
+        for (int k = 0; k < 200; k++) {
+            for (int i = 0; i < block.length; i++) {
+                block[i] = 0.2f * (float) random.nextGaussian();
+            }
+            System.arraycopy(block, 0, expected, 0, block.length);
+            filterBank.process(block, block.length, gains);
+            for (FrequencyBand band : FrequencyBand.values()) {
+                if (gains.getGainDb(band) != 0.0f) {
+                    cascade.getFilter(band).process(expected, expected.length, gains.getGain(band));
+                }
+            }
+            for (int i = 0; i < block.length; i++) {
+                assertEquals(expected[i], block[i], 1e-5f);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyTunerTest {
+    @Test
+    public void initialSizesFollowBurst() {
+        LatencyTuner tuner = new LatencyTuner(new FakeAudioDeviceProfile(48000, 192, 3840, 7680));
+        
+        assertEquals(48000, tuner.getSampleRate());
+        assertEquals(192, tuner.getFramesPerBurst());
+        assertEquals(192, tuner.getReadFrames());
+        assertEquals(2 * 192, tuner.getTrackBufferFrames());
+        // حداقل دستگاه بزرگ‌تر از 4 burst است
+        assertEquals(3840, tuner.getRecordBufferBytes());
+        assertEquals(12.0f, tuner.getEstimatedLatencyMs(), 1e-4f);
+    }
+    
+    @Test
+    public void recordBufferHoldsAtLeastFourBursts() {
+        LatencyTuner tuner = new LatencyTuner(new FakeAudioDeviceProfile(48000, 480, 640, 7680));
+        assertEquals(4 * 480 * 2, tuner.getRecordBufferBytes());
+    }
+    
+    @Test
+    public void missingOrExtremeBurstIsClamped() {
+        assertEquals(LatencyTuner.DEFAULT_FRAMES_PER_BURST,
+                new LatencyTuner(new FakeAudioDeviceProfile(48000, 0, 3840, 7680)).getFramesPerBurst());
+        assertEquals(LatencyTuner.DEFAULT_FRAMES_PER_BURST,
+                new LatencyTuner(new FakeAudioDeviceProfile(48000, -1, 3840, 7680)).getFramesPerBurst());
+        assertEquals(16, new LatencyTuner(new FakeAudioDeviceProfile(48000, 5, 3840, 7680)).getFramesPerBurst());
+        assertEquals(4096, new LatencyTuner(new FakeAudioDeviceProfile(48000, 10000, 3840, 7680)).getFramesPerBurst());
+    }
+    
+    @Test
+    public void capacityIsRoundedUpToBurst() {
+        // 10100 بایت = 2525 فریم استریو -> 26 burst از 100 فریم
+        LatencyTuner large = new LatencyTuner(new FakeAudioDeviceProfile(44100, 100, 3840, 10100));
+        assertEquals(2600, large.getTrackCapacityFrames());
+        assertEquals(2600 * 4, large.getTrackCapacityBytes());
+        
+        // حداقل دستگاه کوچک: ظرفیت 8 burst
+        LatencyTuner small = new LatencyTuner(new FakeAudioDeviceProfile(48000, 96, 3840, 1000));
+        assertEquals(8 * 96, small.getTrackCapacityFrames());
+    }
+    
+    @Test
+    public void growsOneBurstPerNewUnderrunUpToCapacity() {
+        LatencyTuner tuner = new LatencyTuner(new FakeAudioDeviceProfile(48000, 192, 3840, 0));
+        int capacity = tuner.getTrackCapacityFrames();
+        assertEquals(8 * 192, capacity);
+        
+        assertFalse(tuner.onUnderrunCount(0));
+        assertTrue(tuner.onUnderrunCount(1));
+        assertEquals(3 * 192, tuner.getTrackBufferFrames());
+        // شمارنده تغییر نکرده: بدون رشد
+        assertFalse(tuner.onUnderrunCount(1));
+        // چند underrun بین دو بررسی: فقط یک burst
+        assertTrue(tuner.onUnderrunCount(5));
+        assertEquals(4 * 192, tuner.getTrackBufferFrames());
+        
+        int count = 5;
+        while (tuner.onUnderrunCount(++count)) {
+            assertTrue(tuner.getTrackBufferFrames() <= capacity);
+        }
+        assertEquals(capacity, tuner.getTrackBufferFrames());
+        assertEquals(6, tuner.getUnderrunGrowths());
+        assertFalse(tuner.onUnderrunCount(count + 10));
+        assertEquals(capacity, tuner.getTrackBufferFrames());
+    }
+    
+    @Test
+    public void newTrackRestartsUnderrunCounting() {
+        LatencyTuner tuner = new LatencyTuner(new FakeAudioDeviceProfile(48000));
+        assertTrue(tuner.onUnderrunCount(3));
+        tuner.resetUnderrunCount();
+        assertTrue(tuner.onUnderrunCount(1));
+        assertEquals(4 * 192, tuner.getTrackBufferFrames());
+    }
+    
+    @Test
+    public void actualBufferSizeReplacesTarget() {
+        LatencyTuner tuner = new LatencyTuner(new FakeAudioDeviceProfile(48000));
+        tuner.setActualTrackBufferFrames(500);
+        assertEquals(500, tuner.getTrackBufferFrames());
+        // کد خطای AudioTrack نادیده گرفته می‌شود
+        tuner.setActualTrackBufferFrames(-38);
+        assertEquals(500, tuner.getTrackBufferFrames());
+    }
+}
@@ -0,0 +1,364 @@
+package com.hearingaid.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * آزمون پایداری طولانی و اندازه‌گیری تأخیر حلقه‌ی کامل AudioProcessor روی SimulatedLoopbackDevice
+ *
+ * در فاصله‌های ثابت یک سیگنال آزمون (نویز شبه‌تصادفی با لبه‌های نرم) به میکروفون شبیه‌سازی شده تزریق و
+ * خروجی پخش شده ضبط می‌شود؛ تأخیر ورودی تا خروجی از بیشینه‌ی همبستگی متقابل به دست می‌آید. پس از دوره‌ی
+ * گرم شدن (JIT)، آزمون در صورت deadline miss یا xrun بیش از حد مجاز، رشد heap، تغییر تأخیر بدون xrun یا
+ * رانش کلی تأخیر بیش از حد مجاز، ناموفق است. تغییر تأخیر بدون xrun نشانه‌ی رانش ساعت ضبط و پخش است که با
+ * captureClockPpm و renderClockPpm شبیه‌سازی می‌شود. heap فقط در پایان گرم شدن و پس از توقف (با GC کامل) اندازه
+ * گرفته می‌شود تا توقف GC خود باعث xrun نشود؛ اشیای نگه داشته شده توسط پردازشگر پس از توقف نیز شمرده می‌شوند
+ *
+ * از LoopbackSoakTest اجرا می‌شود (آزمون محلی JVM با returnDefaultValues برای کلاس‌های اندروید)
+ */
+public class LoopbackSoakHarness {
+    private static final int PROBE_LENGTH = 2048;
+    private static final int PROBE_RAMP = 240;
+    private static final float PROBE_AMPLITUDE = 0.25f;
+    private static final float BACKGROUND_AMPLITUDE = 0.003f;
+    // بیشترین تأخیر قابل اندازه‌گیری
+    private static final float MAX_LATENCY_MS = 200.0f;
+    // همبستگی نرمال شده‌ی کمتر از این یعنی سیگنال آزمون در خروجی پیدا نشد
+    private static final float MIN_CORRELATION = 0.3f;
+    private static final long POLL_INTERVAL_MS = 50;
+    // فرصت برای ثبت xrun ناشی از توقف GC اندازه‌گیری heap پیش از شروع شمارش
+    private static final long GC_SETTLE_MS = 500;
+    
+    /**
+     * تنظیمات آزمون
+     */
+    public static class Config {
+        public long durationMs = 60000;
+        public long warmupMs = 5000;
+        public int sampleRate = 48000;
+        public int framesPerBurst = 192;
+        public float tickJitterMs = 0.5f;
+        // انحراف ساعت ضبط و پخش از نرخ اسمی (ppm)؛ برابر یعنی ساعت مشترک
+        public double captureClockPpm = 0.0;
+        public double renderClockPpm = 0.0;
+        public float stallProbability = 0.0f;
+        public float stallMs = 0.0f;
+        public long probeIntervalMs = 2000;
+        public long seed = 1;
+        public long maxDeadlineMisses = 0;
+        public long maxXruns = 0;
+        public long maxHeapGrowthBytes = 4L * 1024 * 1024;
+        public float maxLatencyDriftMs = 5.0f;
+    }
+    
+    /**
+     * نتیجه‌ی آزمون
+     */
+    public static class Report {
+        public long elapsedMs;
+        public long processedBlocks;
+        public long deadlineMisses;
+        public long overruns;
+        public long underruns;
+        public float maxProcessingMs;
+        public float maxTickLatenessMs;
+        public int latencyMeasurements;
+        public int lostProbes;
+        public float baselineLatencyMs = Float.NaN;
+        public float minLatencyMs = Float.NaN;
+        public float maxLatencyMs = Float.NaN;
+        public float lastLatencyMs = Float.NaN;
+        public int unexplainedLatencyChanges;
+        public long heapGrowthBytes;
+        public int finalTrackBufferFrames;
+        public final List<String> failures = new ArrayList<>();
+        
+        public boolean passed() {
+            return failures.isEmpty();
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("مدت: %.1f دقیقه، بلوک‌ها: %d%n", elapsedMs / 60000.0f, processedBlocks));
+            sb.append(String.format("deadline miss: %d (بیشترین زمان پردازش %.3f ms)%n", deadlineMisses, maxProcessingMs));
+            sb.append(String.format("xrun: overrun=%d underrun=%d (بیشترین تأخیر تیک %.3f ms)%n",
+                    overruns, underruns, maxTickLatenessMs));
+            sb.append(String.format("تأخیر: پایه=%.3f کمینه=%.3f بیشینه=%.3f آخر=%.3f ms (%d اندازه‌گیری، %d گم شده، %d تغییر بدون xrun)%n",
+                    baselineLatencyMs, minLatencyMs, maxLatencyMs, lastLatencyMs,
+                    latencyMeasurements, lostProbes, unexplainedLatencyChanges));
+            sb.append(String.format("رشد heap: %d KB، بافر پخش نهایی: %d فریم%n",
+                    heapGrowthBytes / 1024, finalTrackBufferFrames));
+            sb.append(passed() ? "نتیجه: موفق" : "نتیجه: ناموفق " + failures);
+            return sb.toString();
+        }
+    }
+    
+    private final Config config;
+    private final short[] probe = new short[PROBE_LENGTH];
+    private final long probeIntervalFrames;
+    private final int maxLagFrames;
+    
+    // پنجره‌ی خروجی ضبط شده پس از هر سیگنال آزمون (نوشتن در نخ سخت‌افزار، خواندن در نخ آزمون)
+    private final short[] captureWindow;
+    private final short[] pendingWindow;
+    private int capturedFrames = -1;
+    // زمان شروع آخرین سیگنال آزمون در میکروفون که پنجره‌اش هنوز شروع نشده، یا -1
+    private long probeStartNanos = -1;
+    private volatile boolean pendingReady;
+    // تعداد xrun در شروع پنجره‌ی در حال ضبط و پنجره‌ی آماده
+    private long windowStartXruns;
+    private volatile long pendingStartXruns;
+    private long skippedWindows;
+    
+    private final Random backgroundRandom;
+    private SimulatedLoopbackDevice device;
+    
+    public LoopbackSoakHarness(Config config) {
+        this.config = config;
+        probeIntervalFrames = config.probeIntervalMs * config.sampleRate / 1000;
+        maxLagFrames = Math.round(MAX_LATENCY_MS * config.sampleRate / 1000.0f);
+        if (probeIntervalFrames < 2L * (PROBE_LENGTH + maxLagFrames)) {
+            throw new IllegalArgumentException("فاصله‌ی سیگنال‌های آزمون کوتاه است");
+        }
+        captureWindow = new short[PROBE_LENGTH + maxLagFrames];
+        pendingWindow = new short[PROBE_LENGTH + maxLagFrames];
+        backgroundRandom = new Random(config.seed + 1);
+        
+        Random probeRandom = new Random(config.seed);
+        for (int i = 0; i < PROBE_LENGTH; i++) {
+            float edge = Math.min(1.0f, Math.min(i, PROBE_LENGTH - 1 - i) / (float) PROBE_RAMP);
+            float value = (probeRandom.nextBoolean() ? 1.0f : -1.0f) * PROBE_AMPLITUDE * edge;
+            probe[i] = (short) (value * 32767.0f);
+        }
+    }
+    
+    /**
+     * سیگنال میکروفون: نویز زمینه‌ی ضعیف و سیگنال آزمون در ابتدای هر فاصله
+     */
+    private void fillMic(short[] buffer, int frames, long firstFrame, long timeNanos) {
+        for (int i = 0; i < frames; i++) {
+            long frame = firstFrame + i;
+            long offset = frame % probeIntervalFrames;
+            if (offset == 0 && frame >= probeIntervalFrames) {
+                probeStartNanos = timeNanos + Math.round(i * 1e9 / config.sampleRate);
+            }
+            float background = (backgroundRandom.nextFloat() * 2.0f - 1.0f) * BACKGROUND_AMPLITUDE * 32767.0f;
+            int sample = offset < PROBE_LENGTH && frame >= probeIntervalFrames
+                    ? probe[(int) offset] + (int) background : (int) background;
+            buffer[i] = (short) sample;
+        }
+    }
+    
+    /**
+     * ضبط کانال چپ خروجی از فریمی که هم‌زمان با شروع سیگنال آزمون در میکروفون پخش می‌شود. هم‌ترازی با زمان
+     * (نه شماره‌ی فریم) لازم است: خروجی همان دنباله‌ی نمونه‌های ورودی است، پس اختلاف شماره‌ی فریم‌ها با رانش
+     * ساعت تغییر نمی‌کند، ولی تأخیر واقعی با پر شدن بافرها زیاد یا کم می‌شود
+     */
+    private void onPlayed(short[] stereo, int frames, long firstFrame, long timeNanos) {
+        for (int i = 0; i < frames; i++) {
+            if (capturedFrames < 0 && probeStartNanos >= 0
+                    && timeNanos + Math.round(i * 1e9 / config.sampleRate) >= probeStartNanos) {
+                capturedFrames = 0;
+                probeStartNanos = -1;
+                windowStartXruns = device.getXruns();
+            }
+            if (capturedFrames >= 0) {
+                captureWindow[capturedFrames++] = stereo[i * 2];
+                if (capturedFrames == captureWindow.length) {
+                    if (pendingReady) {
+                        skippedWindows++;
+                    } else {
+                        System.arraycopy(captureWindow, 0, pendingWindow, 0, captureWindow.length);
+                        pendingStartXruns = windowStartXruns;
+                        pendingReady = true;
+                    }
+                    capturedFrames = -1;
+                }
+            }
+        }
+    }
+    
+    short[] getProbe() {
+        return probe;
+    }
+    
+    /**
+     * طول پنجره‌ی خروجی ضبط شده پس از هر سیگنال آزمون (سیگنال آزمون به اضافه‌ی بیشترین تأخیر)
+     */
+    int getCaptureWindowLength() {
+        return captureWindow.length;
+    }
+    
+    /**
+     * تأخیر (فریم) از بیشینه‌ی همبستگی متقابل سیگنال آزمون و خروجی، یا -1 اگر پیدا نشد
+     */
+    int measureLatencyFrames(short[] output) {
+        double probeEnergy = 0.0;
+        for (short p : probe) {
+            probeEnergy += (double) p * p;
+        }
+        
+        int bestLag = -1;
+        double bestScore = 0.0;
+        for (int lag = 0; lag < maxLagFrames; lag++) {
+            double dot = 0.0;
+            double energy = 0.0;
+            for (int i = 0; i < PROBE_LENGTH; i++) {
+                double y = output[lag + i];
+                dot += probe[i] * y;
+                energy += y * y;
+            }
+            if (energy <= 0.0) {
+                continue;
+            }
+            double score = dot / Math.sqrt(probeEnergy * energy);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLag = lag;
+            }
+        }
+        return bestScore >= MIN_CORRELATION ? bestLag : -1;
+    }
+    
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * اجرای آزمون (مسدودکننده به مدت durationMs)
+     */
+    public Report run() {
+        device = new SimulatedLoopbackDevice(config.sampleRate, config.framesPerBurst,
+                config.tickJitterMs, config.stallProbability, config.stallMs, config.seed,
+                config.captureClockPpm, config.renderClockPpm, this::fillMic, this::onPlayed);
+        AudioProcessor processor = new AudioProcessor(device);
+        Report report = new Report();
+        float msPerFrame = 1000.0f / config.sampleRate;
+        
+        processor.start();
+        if (!processor.isProcessing()) {
+            report.failures.add("شروع پردازش ناموفق بود");
+            return report;
+        }
+        
+        long startMs = System.currentTimeMillis();
+        long warmupEndMs = startMs + config.warmupMs;
+        long endMs = startMs + config.durationMs;
+        boolean warmedUp = false;
+        long baselineHeap = 0;
+        long baseDeadlineMisses = 0;
+        long baseOverruns = 0;
+        long baseUnderruns = 0;
+        long xrunsAtLastMeasurement = 0;
+        int lastLatencyFrames = -1;
+        
+        try {
+            while (System.currentTimeMillis() < endMs) {
+                Thread.sleep(POLL_INTERVAL_MS);
+                long now = System.currentTimeMillis();
+                
+                if (!warmedUp && now >= warmupEndMs) {
+                    warmedUp = true;
+                    baselineHeap = usedHeapAfterGc();
+                    Thread.sleep(GC_SETTLE_MS);
+                    pendingReady = false;
+                    baseDeadlineMisses = device.getDeadlineMisses();
+                    baseOverruns = device.getOverruns();
+                    baseUnderruns = device.getUnderruns();
+                    xrunsAtLastMeasurement = device.getXruns();
+                    continue;
+                }
+                
+                if (pendingReady) {
+                    int latencyFrames = measureLatencyFrames(pendingWindow);
+                    long windowXruns = pendingStartXruns;
+                    pendingReady = false;
+                    if (warmedUp) {
+                        recordLatency(report, latencyFrames, lastLatencyFrames, xrunsAtLastMeasurement, msPerFrame);
+                        if (latencyFrames >= 0) {
+                            lastLatencyFrames = latencyFrames;
+                        }
+                        // xrun در طول همین پنجره (و تغییر بافر پس از آن) ممکن است فقط در اندازه‌گیری بعدی دیده شود
+                        xrunsAtLastMeasurement = windowXruns;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.failures.add("آزمون قطع شد");
+        } finally {
+            processor.stop();
+        }
+        
+        report.elapsedMs = System.currentTimeMillis() - startMs;
+        report.processedBlocks = device.getProcessedBlocks();
+        report.deadlineMisses = device.getDeadlineMisses() - baseDeadlineMisses;
+        report.overruns = device.getOverruns() - baseOverruns;
+        report.underruns = device.getUnderruns() - baseUnderruns;
+        report.maxProcessingMs = device.getMaxProcessingNanos() / 1000000.0f;
+        report.maxTickLatenessMs = device.getMaxTickLatenessNanos() / 1000000.0f;
+        report.finalTrackBufferFrames = processor.getLatencyTuner().getTrackBufferFrames();
+        if (warmedUp) {
+            report.heapGrowthBytes = usedHeapAfterGc() - baselineHeap;
+        }
+        evaluate(report);
+        return report;
+    }
+    
+    private void recordLatency(Report report, int latencyFrames, int lastLatencyFrames,
+                               long xrunsAtLastMeasurement, float msPerFrame) {
+        if (latencyFrames < 0) {
+            report.lostProbes++;
+            return;
+        }
+        float latencyMs = latencyFrames * msPerFrame;
+        report.latencyMeasurements++;
+        report.lastLatencyMs = latencyMs;
+        if (Float.isNaN(report.baselineLatencyMs)) {
+            report.baselineLatencyMs = latencyMs;
+            report.minLatencyMs = latencyMs;
+            report.maxLatencyMs = latencyMs;
+        } else {
+            report.minLatencyMs = Math.min(report.minLatencyMs, latencyMs);
+            report.maxLatencyMs = Math.max(report.maxLatencyMs, latencyMs);
+        }
+        // اگر ساعت ضبط و پخش هم‌گام باشند، تأخیر فقط با xrun تغییر می‌کند؛ در غیر این صورت رانش ساعت است
+        if (lastLatencyFrames >= 0 && latencyFrames != lastLatencyFrames
+                && device.getXruns() == xrunsAtLastMeasurement) {
+            report.unexplainedLatencyChanges++;
+        }
+    }
+    
+    private void evaluate(Report report) {
+        if (report.deadlineMisses > config.maxDeadlineMisses) {
+            report.failures.add("deadline miss: " + report.deadlineMisses);
+        }
+        if (report.overruns + report.underruns > config.maxXruns) {
+            report.failures.add("xrun: " + (report.overruns + report.underruns));
+        }
+        if (report.heapGrowthBytes > config.maxHeapGrowthBytes) {
+            report.failures.add("رشد heap: " + report.heapGrowthBytes);
+        }
+        if (report.latencyMeasurements == 0) {
+            report.failures.add("تأخیر اندازه‌گیری نشد");
+        } else if (report.maxLatencyMs - report.minLatencyMs > config.maxLatencyDriftMs) {
+            report.failures.add(String.format("رانش تأخیر: %.3f ms", report.maxLatencyMs - report.minLatencyMs));
+        }
+        if (report.unexplainedLatencyChanges > 0) {
+            report.failures.add("تغییر تأخیر بدون xrun: " + report.unexplainedLatencyChanges);
+        }
+        if (report.lostProbes > 0) {
+            report.failures.add("سیگنال آزمون در خروجی پیدا نشد: " + report.lostProbes);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class NoiseReducerTest {
+    private static float[] noisyTone(int length, Random random) {
+        float[] x = new float[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = (float) (0.3 * Math.sin(2.0 * Math.PI * 440.0 * i / 48000.0) + 0.05 * random.nextGaussian());
+        }
+        return x;
+    }
+    
+    @Test
+    public void onlyValidSamplesAreProcessed() {
+        // خواندن کوتاه: بقیه‌ی بافر از بلوک قبلی مانده و نه باید تغییر کند و نه روی تخمین نویز اثر بگذارد
+        Random random = new Random(1);
+        int length = 100;
+        float[] buffer = noisyTone(960, random);
+        for (int i = length; i < buffer.length; i++) {
+            buffer[i] *= 3.0f;
+        }
+        float[] stale = Arrays.copyOfRange(buffer, length, buffer.length);
+        float[] expected = Arrays.copyOf(buffer, length);
+        new NoiseReducer(48000).reduceNoise(expected, length, 0.8f);
+        
+        new NoiseReducer(48000).reduceNoise(buffer, length, 0.8f);
+        assertArrayEquals(expected, Arrays.copyOf(buffer, length), 0.0f);
+        assertArrayEquals(stale, Arrays.copyOfRange(buffer, length, buffer.length), 0.0f);
+    }
+}
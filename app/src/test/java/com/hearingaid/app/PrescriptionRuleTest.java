@@ -0,0 +1,70 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PrescriptionRuleTest {
+    private static Audiogram audiogram(float... thresholds) {
+        Audiogram audiogram = new Audiogram();
+        for (FrequencyBand band : FrequencyBand.values()) {
+            audiogram.setThreshold(band, thresholds[band.ordinal()]);
+        }
+        return audiogram;
+    }
+    
+    @Test
+    public void halfGainIsHalfTheLoss() {
+        Audiogram audiogram = audiogram(10.0f, 20.0f, 30.0f, 40.0f, 50.0f, 60.0f, 70.0f);
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(audiogram.getThreshold(band) * 0.5f,
+                    PrescriptionRule.HALF_GAIN.computeGainDb(audiogram, band), 1e-5f);
+        }
+    }
+    
+    @Test
+    public void nalRMatchesFormula() {
+        // میانگین 500/1000/2000 = 30 -> X = 4.5
+        Audiogram audiogram = audiogram(30.0f, 30.0f, 20.0f, 30.0f, 40.0f, 50.0f, 70.0f);
+        float[] expected = {
+                4.5f + 9.3f - 17.0f,  // 125 (k مانند 250)
+                4.5f + 9.3f - 17.0f,  // 250
+                4.5f + 6.2f - 8.0f,   // 500
+                4.5f + 9.3f + 1.0f,   // 1000
+                4.5f + 12.4f - 1.0f,  // 2000
+                4.5f + 15.5f - 2.0f,  // 4000
+                4.5f + 21.7f - 2.0f   // 8000 (k مانند 6000)
+        };
+        for (FrequencyBand band : FrequencyBand.values()) {
+            assertEquals(band.name(), expected[band.ordinal()],
+                    PrescriptionRule.NAL_R.computeGainDb(audiogram, band), 1e-4f);
+        }
+    }
+    
+    @Test
+    public void applyClampsToAdjustableRange() {
+        Audiogram audiogram = audiogram(30.0f, 30.0f, 20.0f, 30.0f, 40.0f, 50.0f, 70.0f);
+        FrequencyGainSettings gains = new FrequencyGainSettings();
+        assertEquals(FrequencyBand.values().length, PrescriptionRule.NAL_R.apply(audiogram, gains));
+        
+        assertEquals(PrescriptionRule.MIN_GAIN_DB, gains.getGainDb(FrequencyBand.LOW_250), 1e-3f);
+        assertEquals(2.7f, gains.getGainDb(FrequencyBand.MID_500), 1e-3f);
+        assertEquals(14.8f, gains.getGainDb(FrequencyBand.MID_1000), 1e-3f);
+        assertEquals(18.0f, gains.getGainDb(FrequencyBand.HIGH_4000), 1e-3f);
+        assertEquals(PrescriptionRule.MAX_GAIN_DB, gains.getGainDb(FrequencyBand.HIGH_8000), 1e-3f);
+    }
+    
+    @Test
+    public void unmeasuredBandsAreLeftUnchanged() {
+        Audiogram audiogram = new Audiogram();
+        audiogram.setThreshold(FrequencyBand.HIGH_4000, 40.0f);
+        FrequencyGainSettings gains = new FrequencyGainSettings();
+        gains.setGain(FrequencyBand.MID_1000, 7.0f);
+        
+        assertEquals(1, PrescriptionRule.NAL_R.apply(audiogram, gains));
+        // بدون آستانه‌های 500/1000/2000، جمله‌ی میانگین صفر است
+        assertEquals(0.31f * 40.0f - 2.0f, gains.getGainDb(FrequencyBand.HIGH_4000), 1e-3f);
+        assertEquals(7.0f, gains.getGainDb(FrequencyBand.MID_1000), 1e-3f);
+        assertEquals(0.0f, gains.getGainDb(FrequencyBand.LOW_125), 1e-3f);
+    }
+}
@@ -0,0 +1,390 @@
+package com.hearingaid.app;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * دستگاه صوتی شبیه‌سازی شده برای اجرای حلقه‌ی کامل AudioProcessor روی JVM (بدون گوشی)
+ *
+ * یک نخ «سخت‌افزار» با ساعت بلادرنگ در هر دوره‌ی burst یک burst نمونه‌ی میکروفون تولید و یک burst خروجی
+ * مصرف می‌کند. ضبط و پخش هر کدام ساعت و شماره‌ی فریم خود را دارند؛ بدون انحراف (ppm) هم‌گام‌اند، مانند
+ * کدک مشترک گوشی، و با انحراف متفاوت مانند میکروفون گوشی و هدفون بلوتوثی از هم فاصله می‌گیرند. زمان هر تیک
+ * با تأخیر تصادفی (jitter) جابه‌جا می‌شود و نخ پردازش می‌تواند با احتمال داده شده در read متوقف شود (شبیه‌سازی پیش‌دستی
+ * زمان‌بند). پر شدن بافر ضبط (overrun)، خالی ماندن بافر پخش (underrun) و بلوک‌هایی که پردازششان بیش از
+ * یک دوره طول کشید (deadline miss) شمارش می‌شوند
+ */
+public class SimulatedLoopbackDevice implements AudioDeviceProfile {
+    /**
+     * تولید سیگنال میکروفون بر حسب شماره‌ی فریم ساعت ضبط (در نخ سخت‌افزار)
+     * timeNanos زمان اسمی اولین فریم بر حسب System.nanoTime (مانند AudioTimestamp، بدون jitter تیک)
+     */
+    public interface MicSignal {
+        void fill(short[] buffer, int frames, long firstFrame, long timeNanos);
+    }
+    
+    /**
+     * دریافت خروجی پخش شده (استریو، interleaved) بر حسب شماره‌ی فریم ساعت پخش (در نخ سخت‌افزار)
+     * timeNanos زمان اسمی اولین فریم بر حسب System.nanoTime (مانند AudioTimestamp، بدون jitter تیک)
+     */
+    public interface OutputMonitor {
+        void onPlayed(short[] stereo, int frames, long firstFrame, long timeNanos);
+    }
+    
+    private final int sampleRate;
+    private final int framesPerBurst;
+    private final long tickJitterNanos;
+    private final double captureClockPpm;
+    private final double renderClockPpm;
+    private final float stallProbability;
+    private final long stallNanos;
+    private final long seed;
+    private final MicSignal micSignal;
+    private final OutputMonitor outputMonitor;
+    
+    // شمارنده‌ها (نوشتن فقط در یک نخ؛ خواندن از نخ آزمون)
+    private volatile long overruns;
+    private volatile long underruns;
+    private volatile long deadlineMisses;
+    private volatile long processedBlocks;
+    private volatile long maxProcessingNanos;
+    private volatile long maxTickLatenessNanos;
+    
+    /**
+     * @param sampleRate نرخ نمونه‌برداری
+     * @param framesPerBurst اندازه‌ی burst سخت‌افزار
+     * @param tickJitterMs حداکثر تأخیر تصادفی هر تیک سخت‌افزار (میلی‌ثانیه)
+     * @param stallProbability احتمال توقف نخ پردازش در هر read
+     * @param stallMs مدت توقف نخ پردازش (میلی‌ثانیه)
+     * @param seed بذر اعداد تصادفی (برای تکرارپذیری)
+     * @param captureClockPpm انحراف ساعت ضبط از نرخ اسمی (ppm، مثبت یعنی تند)
+     * @param renderClockPpm انحراف ساعت پخش از نرخ اسمی (ppm، مثبت یعنی تند)
+     */
+    public SimulatedLoopbackDevice(int sampleRate, int framesPerBurst, float tickJitterMs,
+                                   float stallProbability, float stallMs, long seed,
+                                   double captureClockPpm, double renderClockPpm,
+                                   MicSignal micSignal, OutputMonitor outputMonitor) {
+        this.sampleRate = sampleRate;
+        this.framesPerBurst = framesPerBurst;
+        this.tickJitterNanos = (long) (tickJitterMs * 1000000L);
+        this.captureClockPpm = captureClockPpm;
+        this.renderClockPpm = renderClockPpm;
+        this.stallProbability = stallProbability;
+        this.stallNanos = (long) (stallMs * 1000000L);
+        this.seed = seed;
+        this.micSignal = micSignal;
+        this.outputMonitor = outputMonitor;
+    }
+    
+    @Override
+    public int getNativeSampleRate() {
+        return sampleRate;
+    }
+    
+    @Override
+    public int getFramesPerBurst() {
+        return framesPerBurst;
+    }
+    
+    @Override
+    public int getMinRecordBufferBytes(int sampleRate) {
+        return 2 * framesPerBurst * 2;
+    }
+    
+    @Override
+    public int getMinTrackBufferBytes(int sampleRate) {
+        return 2 * framesPerBurst * 4;
+    }
+    
+    @Override
+    public AudioIo open(LatencyTuner tuner) {
+        return new Stream(tuner.getRecordBufferBytes() / 2, tuner.getTrackCapacityFrames());
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public long getBurstPeriodNanos() {
+        return framesPerBurst * 1000000000L / sampleRate;
+    }
+    
+    /**
+     * دوره‌ی burst ساعتی با انحراف داده شده (نانوثانیه، بدون گرد کردن تا خطای آن روی هم جمع نشود)
+     */
+    private double getBurstPeriodNanos(double clockPpm) {
+        return framesPerBurst * 1e9 / (sampleRate * (1.0 + clockPpm * 1e-6));
+    }
+    
+    public long getOverruns() {
+        return overruns;
+    }
+    
+    public long getUnderruns() {
+        return underruns;
+    }
+    
+    /**
+     * مجموع overrun و underrun
+     */
+    public long getXruns() {
+        return overruns + underruns;
+    }
+    
+    public long getDeadlineMisses() {
+        return deadlineMisses;
+    }
+    
+    public long getProcessedBlocks() {
+        return processedBlocks;
+    }
+    
+    public long getMaxProcessingNanos() {
+        return maxProcessingNanos;
+    }
+    
+    public long getMaxTickLatenessNanos() {
+        return maxTickLatenessNanos;
+    }
+    
+    /**
+     * مسیر ورودی/خروجی یک بار باز شده: دو بافر حلقوی (ضبط مونو، پخش استریو) بین نخ سخت‌افزار و نخ پردازش
+     */
+    private class Stream implements AudioIo {
+        private final Object lock = new Object();
+        
+        private final short[] captureRing;
+        private int captureHead;
+        private int captureCount;
+        
+        private final short[] playbackRing;
+        private final int playbackCapacityFrames;
+        private int playbackHead;
+        private int playbackCount;
+        private int bufferSizeFrames;
+        private boolean playbackPrimed;
+        private int underrunCount;
+        
+        private volatile boolean running;
+        private Thread hardwareThread;
+        
+        private final Random appRandom = new Random(seed ^ 0x5DEECE66DL);
+        private long readReturnNanos = -1;
+        
+        Stream(int captureCapacityFrames, int playbackCapacityFrames) {
+            captureRing = new short[Math.max(captureCapacityFrames, framesPerBurst)];
+            this.playbackCapacityFrames = playbackCapacityFrames;
+            playbackRing = new short[playbackCapacityFrames * 2];
+            bufferSizeFrames = playbackCapacityFrames;
+        }
+        
+        @Override
+        public void start() {
+            running = true;
+            hardwareThread = new Thread(this::hardwareLoop, "SimulatedAudioHardware");
+            hardwareThread.setPriority(Thread.MAX_PRIORITY);
+            hardwareThread.start();
+        }
+        
+        @Override
+        public void stop() {
+            running = false;
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            if (hardwareThread != null) {
+                try {
+                    hardwareThread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                hardwareThread = null;
+            }
+        }
+        
+        @Override
+        public void release() {
+            stop();
+        }
+        
+        @Override
+        public void prepareAudioThread() {
+            Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
+        }
+        
+        @Override
+        public int read(short[] buffer, int frames) {
+            synchronized (lock) {
+                while (running && captureCount < frames) {
+                    waitOnLock();
+                }
+                if (!running) {
+                    return -1;
+                }
+                for (int i = 0; i < frames; i++) {
+                    buffer[i] = captureRing[captureHead];
+                    captureHead = (captureHead + 1) % captureRing.length;
+                }
+                captureCount -= frames;
+            }
+            // توقف شبیه‌سازی شده جزو زمان پردازش همین بلوک حساب می‌شود
+            readReturnNanos = System.nanoTime();
+            if (stallProbability > 0 && appRandom.nextFloat() < stallProbability) {
+                // پیش‌دستی شبیه‌سازی شده‌ی نخ پردازش
+                LockSupport.parkNanos(stallNanos);
+            }
+            return frames;
+        }
+        
+        @Override
+        public int write(short[] buffer, int samples) {
+            if (readReturnNanos >= 0) {
+                long processing = System.nanoTime() - readReturnNanos;
+                if (processing > maxProcessingNanos) {
+                    maxProcessingNanos = processing;
+                }
+                if (processing > getBurstPeriodNanos()) {
+                    deadlineMisses++;
+                }
+                processedBlocks++;
+                readReturnNanos = -1;
+            }
+            
+            int frames = samples / 2;
+            synchronized (lock) {
+                int written = 0;
+                while (written < frames) {
+                    while (running && playbackCount >= bufferSizeFrames) {
+                        waitOnLock();
+                    }
+                    if (!running) {
+                        return written * 2;
+                    }
+                    int tail = (playbackHead + playbackCount) % playbackCapacityFrames;
+                    playbackRing[tail * 2] = buffer[written * 2];
+                    playbackRing[tail * 2 + 1] = buffer[written * 2 + 1];
+                    playbackCount++;
+                    written++;
+                }
+                playbackPrimed = true;
+            }
+            return samples;
+        }
+        
+        @Override
+        public int getUnderrunCount() {
+            synchronized (lock) {
+                return underrunCount;
+            }
+        }
+        
+        @Override
+        public int setBufferSizeInFrames(int frames) {
+            synchronized (lock) {
+                bufferSizeFrames = Math.max(framesPerBurst, Math.min(playbackCapacityFrames, frames));
+                lock.notifyAll();
+                return bufferSizeFrames;
+            }
+        }
+        
+        private void waitOnLock() {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+        
+        /**
+         * زمان اسمی یک فریم (ابتدای burst) روی ساعتی با دوره‌ی burst داده شده؛ از شماره‌ی فریم حساب می‌شود
+         * تا گرد کردن دوره روی هم جمع نشود
+         */
+        private long frameNanos(long startNanos, long frame, double burstPeriod) {
+            return startNanos + Math.round(frame / framesPerBurst * burstPeriod);
+        }
+        
+        /**
+         * نخ سخت‌افزار: هر دوره‌ی ساعت ضبط یک burst ضبط و هر دوره‌ی ساعت پخش یک burst پخش
+         */
+        private void hardwareLoop() {
+            Random random = new Random(seed);
+            short[] micBurst = new short[framesPerBurst];
+            short[] outBurst = new short[framesPerBurst * 2];
+            double capturePeriod = getBurstPeriodNanos(captureClockPpm);
+            double renderPeriod = getBurstPeriodNanos(renderClockPpm);
+            long captureFrame = 0;
+            long renderFrame = 0;
+            long startNanos = System.nanoTime();
+            
+            while (running) {
+                // تیک هر ساعت در پایان burst فعلی آن است
+                long captureAt = frameNanos(startNanos, captureFrame + framesPerBurst, capturePeriod);
+                long renderAt = frameNanos(startNanos, renderFrame + framesPerBurst, renderPeriod);
+                long nextTick = Math.min(captureAt, renderAt);
+                boolean capture = captureAt == nextTick;
+                boolean render = renderAt == nextTick;
+                
+                long jitter = tickJitterNanos > 0 ? (long) (random.nextDouble() * tickJitterNanos) : 0;
+                long wakeAt = nextTick + jitter;
+                long now;
+                while ((now = System.nanoTime()) < wakeAt && running) {
+                    LockSupport.parkNanos(wakeAt - now);
+                }
+                long lateness = now - nextTick;
+                if (lateness > maxTickLatenessNanos) {
+                    maxTickLatenessNanos = lateness;
+                }
+                
+                if (capture) {
+                    micSignal.fill(micBurst, framesPerBurst, captureFrame,
+                            frameNanos(startNanos, captureFrame, capturePeriod));
+                }
+                synchronized (lock) {
+                    // ADC: اگر نخ پردازش عقب مانده و بافر ضبط پر است، burst از دست می‌رود
+                    if (capture) {
+                        if (captureCount + framesPerBurst > captureRing.length) {
+                            overruns++;
+                        } else {
+                            int tail = (captureHead + captureCount) % captureRing.length;
+                            for (int i = 0; i < framesPerBurst; i++) {
+                                captureRing[tail] = micBurst[i];
+                                tail = (tail + 1) % captureRing.length;
+                            }
+                            captureCount += framesPerBurst;
+                        }
+                    }
+                    
+                    // DAC: کمبود داده پس از اولین نوشتن یک underrun است و با سکوت پر می‌شود
+                    if (render) {
+                        int available = Math.min(playbackCount, framesPerBurst);
+                        for (int i = 0; i < available; i++) {
+                            outBurst[i * 2] = playbackRing[playbackHead * 2];
+                            outBurst[i * 2 + 1] = playbackRing[playbackHead * 2 + 1];
+                            playbackHead = (playbackHead + 1) % playbackCapacityFrames;
+                        }
+                        playbackCount -= available;
+                        for (int i = available * 2; i < outBurst.length; i++) {
+                            outBurst[i] = 0;
+                        }
+                        if (available < framesPerBurst && playbackPrimed) {
+                            underrunCount++;
+                            underruns++;
+                        }
+                    }
+                    lock.notifyAll();
+                }
+                if (render) {
+                    outputMonitor.onPlayed(outBurst, framesPerBurst, renderFrame,
+                            frameNanos(startNanos, renderFrame, renderPeriod));
+                }
+                
+                if (capture) {
+                    captureFrame += framesPerBurst;
+                }
+                if (render) {
+                    renderFrame += framesPerBurst;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.hearingaid.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TransientSuppressorTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int BLOCK = 192;
+    
+    private static int ms(double milliseconds) {
+        return (int) Math.round(milliseconds * SAMPLE_RATE / 1000.0);
+    }
+    
+    /**
+     * سیگنال شبیه گفتار: هجاهای 200 میلی‌ثانیه‌ای (هارمونیک‌های 140 هرتز) با شروع و پایان 30 میلی‌ثانیه‌ای
+     * و سکوت بین هجاها در سطح نویز -60 dBFS
+     */
+    private static float[] speechLike(int length, Random random) {
+        float[] x = new float[length];
+        int syllable = ms(200);
+        int gap = ms(80);
+        int ramp = ms(30);
+        for (int i = 0; i < length; i++) {
+            int t = i % (syllable + gap);
+            double envelope = 0.0;
+            if (t < syllable) {
+                int edge = Math.min(t, syllable - t);
+                envelope = edge < ramp ? 0.5 - 0.5 * Math.cos(Math.PI * edge / ramp) : 1.0;
+            }
+            double voiced = 0.0;
+            for (int h = 1; h <= 10; h++) {
+                voiced += Math.sin(2.0 * Math.PI * 140.0 * h * i / SAMPLE_RATE + h) / h;
+            }
+            x[i] = (float) (0.08 * envelope * voiced + 0.001 * random.nextGaussian());
+        }
+        return x;
+    }
+    
+    /**
+     * ضربه (مثل برخورد بشقاب): نویز پهن‌باند با میرایی نمایی
+     * @param decayMs ثابت زمانی میرایی؛ طول ضربه 10 برابر آن
+     */
+    private static void addImpulse(float[] x, int at, double decayMs, Random random) {
+        for (int i = at; i < Math.min(x.length, at + ms(10 * decayMs)); i++) {
+            x[i] += (float) (0.8 * Math.exp(-(i - at) / (double) ms(decayMs)) * random.nextGaussian());
+        }
+    }
+    
+    /**
+     * پردازش بلوک به بلوک؛ خروجی به اندازه‌ی تأخیر پیش‌نگری جلو کشیده می‌شود تا با ورودی هم‌تراز باشد
+     * @param gains بهره‌ی هر نمونه (اختیاری)
+     */
+    private static float[] process(TransientSuppressor suppressor, float[] x, float[] gains) {
+        float[] y = x.clone();
+        float[] one = new float[1];
+        float[] block = new float[BLOCK];
+        for (int offset = 0; offset < y.length; offset += BLOCK) {
+            int length = Math.min(BLOCK, y.length - offset);
+            if (gains != null) {
+                for (int i = 0; i < length; i++) {
+                    one[0] = y[offset + i];
+                    suppressor.process(one, 1);
+                    y[offset + i] = one[0];
+                    gains[offset + i] = suppressor.getCurrentGain();
+                }
+            } else {
+                System.arraycopy(y, offset, block, 0, length);
+                suppressor.process(block, length);
+                System.arraycopy(block, 0, y, offset, length);
+            }
+        }
+        int latency = suppressor.getLatencySamples();
+        float[] aligned = new float[x.length];
+        System.arraycopy(y, latency, aligned, 0, x.length - latency);
+        return aligned;
+    }
+    
+    private static double energyDb(float[] x, int from, int to) {
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += x[i] * x[i];
+        }
+        return 10.0 * Math.log10(sum + 1e-30);
+    }
+    
+    private static double peak(float[] x, int from, int to) {
+        double max = 0.0;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, Math.abs(x[i]));
+        }
+        return max;
+    }
+    
+    @Test
+    public void impulseOverSpeechIsAttenuated() {
+        Random random = new Random(1);
+        float[] x = speechLike(SAMPLE_RATE * 2, random);
+        // یکی وسط هجا و یکی در سکوت بین هجاها
+        int[] impulses = {ms(100), ms(500), ms(1240)};
+        for (int at : impulses) {
+            addImpulse(x, at, 2.0, random);
+        }
+        TransientSuppressor suppressor = new TransientSuppressor(SAMPLE_RATE);
+        suppressor.setDepth(1.0f);
+        float[] y = process(suppressor, x, null);
+        
+        for (int at : impulses) {
+            double reductionDb = 20.0 * Math.log10(peak(y, at, at + ms(3)) / peak(x, at, at + ms(3)));
+            assertTrue("impulse at " + at + ": " + reductionDb + " dB", reductionDb < -6.0);
+        }
+        
+        // گفتار دور از ضربه‌ها (پس از بازگشت بهره) دست نخورده است
+        double error = 0.0;
+        double signal = 0.0;
+        for (int i = 0; i < x.length - ms(2); i++) {
+            boolean nearImpulse = false;
+            for (int at : impulses) {
+                nearImpulse |= i >= at - ms(2) && i < at + ms(100);
+            }
+            if (!nearImpulse) {
+                error += (y[i] - x[i]) * (y[i] - x[i]);
+                signal += x[i] * x[i];
+            }
+        }
+        assertTrue(10.0 * Math.log10(error / signal) < -40.0);
+    }
+    
+    @Test
+    public void ringingImpulsesAreAttenuated() {
+        // دنباله‌ی طنین‌دار ضربه میرا می‌شود و نباید صدای پیوسته شناخته شود (پیش از رفع: -4.6، -1.6 و -0.6 dB)
+        double[] decays = {10.0, 30.0, 80.0};
+        double[] limitsDb = {-9.0, -6.0, -4.0};
+        for (int k = 0; k < decays.length; k++) {
+            Random random = new Random(6);
+            float[] x = speechLike(SAMPLE_RATE * 2, random);
+            int at = ms(500);
+            addImpulse(x, at, decays[k], random);
+            TransientSuppressor suppressor = new TransientSuppressor(SAMPLE_RATE);
+            suppressor.setDepth(1.0f);
+            float[] y = process(suppressor, x, null);
+            
+            int end = at + ms(3 * decays[k]);
+            double reductionDb = energyDb(y, at, end) - energyDb(x, at, end);
+            assertTrue("decay " + decays[k] + " ms: " + reductionDb + " dB", reductionDb < limitsDb[k]);
+        }
+    }
+    
+    @Test
+    public void speechIsUntouched() {
+        Random random = new Random(2);
+        float[] x = speechLike(SAMPLE_RATE * 2, random);
+        TransientSuppressor suppressor = new TransientSuppressor(SAMPLE_RATE);
+        suppressor.setDepth(1.0f);
+        float[] gains = new float[x.length];
+        process(suppressor, x, gains);
+        float min = 1.0f;
+        for (float g : gains) {
+            min = Math.min(min, g);
+        }
+        // شروع هجاها (حدود 30 میلی‌ثانیه) ضربه نیست
+        assertTrue(20.0 * Math.log10(min) > -0.5);
+    }
+    
+    @Test
+    public void sustainedOnsetsAreNotDucked() {
+        for (float riseMs : new float[]{3.0f, 10.0f, 20.0f}) {
+            Random random = new Random(3);
+            int onset = ms(250);
+            int rise = ms(riseMs);
+            float[] x = new float[SAMPLE_RATE];
+            for (int i = 0; i < x.length; i++) {
+                double envelope = i < onset ? 0.0 : Math.min(1.0, (i - onset) / (double) rise);
+                x[i] = (float) (0.3 * envelope * Math.sin(2.0 * Math.PI * 220.0 * i / SAMPLE_RATE)
+                        + 0.001 * random.nextGaussian());
+            }
+            TransientSuppressor suppressor = new TransientSuppressor(SAMPLE_RATE);
+            suppressor.setDepth(1.0f);
+            float[] gains = new float[x.length];
+            float[] y = process(suppressor, x, gains);
+            int last = 0;
+            for (int i = 0; i < gains.length; i++) {
+                if (gains[i] < 0.891f) {
+                    last = i;
+                }
+            }
+            String label = "rise " + riseMs + " ms";
+            // کاهش تا زمان تصمیم (حدود 30 میلی‌ثانیه) و سپس بازگشت سریع (پیش از رفع: حدود 120 میلی‌ثانیه در -15 dB)
+            assertTrue(label + ": " + (last - onset) + " samples", last < onset + ms(40));
+            assertEquals(label, 0.0, energyDb(y, onset, onset + ms(100)) - energyDb(x, onset, onset + ms(100)), 2.0);
+            assertEquals(label, 0.0, energyDb(y, onset + ms(40), onset + ms(300))
+                    - energyDb(x, onset + ms(40), onset + ms(300)), 0.05);
+        }
+    }
+    
+    @Test
+    public void repeatedImpulsesAreAllAttenuated() {
+        // ضربه‌های پشت سر هم (صفحه‌کلید) با فاصله‌ی 60 میلی‌ثانیه: هر کدام جدا تشخیص داده می‌شود
+        Random random = new Random(4);
+        float[] x = speechLike(SAMPLE_RATE, random);
+        int[] impulses = new int[8];
+        for (int k = 0; k < impulses.length; k++) {
+            impulses[k] = ms(300 + 60 * k);
+            addImpulse(x, impulses[k], 2.0, random);
+        }
+        TransientSuppressor suppressor = new TransientSuppressor(SAMPLE_RATE);
+        suppressor.setDepth(1.0f);
+        float[] y = process(suppressor, x, null);
+        for (int at : impulses) {
+            assertTrue(peak(y, at, at + ms(3)) < 0.5 * peak(x, at, at + ms(3)));
+        }
+    }
+    
+    @Test
+    public void zeroDepthIsBypassedByDefault() {
+        TransientSuppressor suppressor = new TransientSuppressor(SAMPLE_RATE);
+        Random random = new Random(5);
+        float[] x = speechLike(SAMPLE_RATE / 4, random);
+        addImpulse(x, ms(100), 2.0, random);
+        float[] y = x.clone();
+        suppressor.process(y, y.length);
+        
+        assertArrayEquals(x, y, 0.0f);
+        assertEquals(0.0f, new AudioProcessor(new FakeAudioDeviceProfile(SAMPLE_RATE)).getTransientSuppression(), 0.0f);
+    }
+}